@@ -32,7 +32,9 @@ grammar Xembly;
 @header {
     package org.xembly;
     import java.util.Collection;
+    import java.util.HashMap;
     import java.util.LinkedList;
+    import java.util.Map;
 }
 
 @lexer::header {
@@ -47,6 +49,8 @@ grammar Xembly;
 }
 
 @parser::members {
+    private final Map<String, DefDirective> macros =
+        new HashMap<String, DefDirective>();
     @Override
     public void emitErrorMessage(String msg) {
         throw new ParsingException(msg);
@@ -54,6 +58,13 @@ grammar Xembly;
 }
 
 directives returns [Collection<Directive> ret]
+    :
+    block
+    { $ret = $block.ret; }
+    EOF
+    ;
+
+block returns [Collection<Directive> ret]
     @init { $ret = new LinkedList<Directive>(); }
     :
     (
@@ -62,7 +73,6 @@ directives returns [Collection<Directive> ret]
         SEMICOLON
         { $ret.add($directive.ret); }
     )*
-    EOF
     ;
 
 directive returns [Directive ret]
@@ -70,7 +80,10 @@ directive returns [Directive ret]
     'XPATH' argument
     {
         try {
-            $ret = new XpathDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.XPATH, $argument.ret);
+            if ($ret == null) {
+                $ret = new XpathDirective($argument.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -79,7 +92,22 @@ directive returns [Directive ret]
     'SET' argument
     {
         try {
-            $ret = new SetDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.SET, $argument.ret);
+            if ($ret == null) {
+                $ret = new SetDirective($argument.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'APPEND' argument
+    {
+        try {
+            $ret = SlotDirective.of(Opcode.APPEND, $argument.ret);
+            if ($ret == null) {
+                $ret = new AppendDirective($argument.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -88,7 +116,10 @@ directive returns [Directive ret]
     'XSET' argument
     {
         try {
-            $ret = new XsetDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.XSET, $argument.ret);
+            if ($ret == null) {
+                $ret = new XsetDirective($argument.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -97,7 +128,10 @@ directive returns [Directive ret]
     'ATTR' name=argument COMMA value=argument
     {
         try {
-            $ret = new AttrDirective($name.ret.toString(), $value.ret.toString());
+            $ret = SlotDirective.of(Opcode.ATTR, $name.ret, $value.ret);
+            if ($ret == null) {
+                $ret = new AttrDirective($name.ret.toString(), $value.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -106,7 +140,10 @@ directive returns [Directive ret]
     'ADD' argument
     {
         try {
-            $ret = new AddDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.ADD, $argument.ret);
+            if ($ret == null) {
+                $ret = new AddDirective($argument.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -115,7 +152,10 @@ directive returns [Directive ret]
     'ADDIF' argument
     {
         try {
-            $ret = new AddIfDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.ADDIF, $argument.ret);
+            if ($ret == null) {
+                $ret = new AddIfDirective($argument.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -123,23 +163,33 @@ directive returns [Directive ret]
     |
     'REMOVE'
     {
-        $ret = new RemoveDirective();
+        $ret = RemoveDirective.INSTANCE;
     }
     |
     'STRICT' argument
     {
-        $ret = new StrictDirective(Integer.parseInt($argument.ret.toString()));
+        try {
+            $ret = SlotDirective.of(Opcode.STRICT, $argument.ret);
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+        if ($ret == null) {
+            $ret = new StrictDirective(Integer.parseInt($argument.ret.toString()));
+        }
     }
     |
     'UP'
     {
-        $ret = new UpDirective();
+        $ret = UpDirective.INSTANCE;
     }
     |
     'PI' target=argument data=argument
     {
         try {
-            $ret = new PiDirective($target.ret.toString(), $data.ret.toString());
+            $ret = SlotDirective.of(Opcode.PI, $target.ret, $data.ret);
+            if ($ret == null) {
+                $ret = new PiDirective($target.ret.toString(), $data.ret.toString());
+            }
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -147,18 +197,120 @@ directive returns [Directive ret]
     |
     'PUSH'
     {
-        $ret = new PushDirective();
+        $ret = PushDirective.INSTANCE;
     }
     |
     'POP'
     {
-        $ret = new PopDirective();
+        $ret = PopDirective.INSTANCE;
     }
     |
     'CDATA' argument
     {
         try {
-            $ret = new CdataDirective($argument.ret.toString());
+            $ret = SlotDirective.of(Opcode.CDATA, $argument.ret);
+            if ($ret == null) {
+                $ret = new CdataDirective($argument.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'XML' argument
+    {
+        try {
+            $ret = SlotDirective.of(Opcode.XML, $argument.ret);
+            if ($ret == null) {
+                $ret = new XmlDirective($argument.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'MOVE' argument
+    {
+        try {
+            $ret = SlotDirective.of(Opcode.MOVE, $argument.ret);
+            if ($ret == null) {
+                $ret = new MoveDirective($argument.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'COPY' argument
+    {
+        try {
+            $ret = SlotDirective.of(Opcode.COPY, $argument.ret);
+            if ($ret == null) {
+                $ret = new CopyDirective($argument.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'SORT' key=argument COMMA mode=argument
+    {
+        try {
+            $ret = SlotDirective.of(Opcode.SORT, $key.ret, $mode.ret);
+            if ($ret == null) {
+                $ret = new SortDirective($key.ret.toString(), $mode.ret.toString());
+            }
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        } catch (final IllegalArgumentException ex) {
+            throw new ParsingException(ex);
+        }
+    }
+    |
+    'FOR' item=PARAM 'IN' items=PARAM SEMICOLON block 'END'
+    {
+        $ret = new ForDirective(
+            $item.text.substring(1), $items.text.substring(1), $block.ret
+        );
+    }
+    |
+    'DEF' TEXT SEMICOLON block 'END'
+    {
+        if (this.macros.containsKey($TEXT.text)) {
+            throw new ParsingException(
+                String.format("block '\%s' is already defined", $TEXT.text)
+            );
+        }
+        final DefDirective def;
+        try {
+            def = new DefDirective($TEXT.text, new Block($block.ret));
+        } catch (final XmlContentException ex) {
+            throw new ParsingException(ex);
+        }
+        this.macros.put($TEXT.text, def);
+        $ret = def;
+    }
+    |
+    'CALL' TEXT
+    {
+        if (!this.macros.containsKey($TEXT.text)) {
+            throw new ParsingException(
+                String.format("block '\%s' is not defined", $TEXT.text)
+            );
+        }
+        $ret = this.macros.get($TEXT.text).call();
+    }
+    |
+    'IF' TEXT SEMICOLON yes=block ('ELSE' SEMICOLON no=block)? 'END'
+    {
+        final Collection<Directive> otherwise;
+        if ($no.ret == null) {
+            otherwise = new LinkedList<Directive>();
+        } else {
+            otherwise = $no.ret;
+        }
+        try {
+            $ret = new IfDirective($TEXT.text, $yes.ret, otherwise);
         } catch (final XmlContentException ex) {
             throw new ParsingException(ex);
         }
@@ -169,6 +321,9 @@ argument returns [Object ret]
     :
     TEXT
     { $ret = $TEXT.text; }
+    |
+    PARAM
+    { $ret = new SlotDirective.Param($PARAM.text); }
     ;
 
 label
@@ -200,6 +355,11 @@ TEXT
         }
     }
     ;
+PARAM
+    :
+    '$' ( 'a'..'z' | 'A'..'Z' | '_' )
+    ( 'a'..'z' | 'A'..'Z' | '0'..'9' | '_' | '-' | '.' )*
+    ;
 SPACE
     :
     ( ' ' | '\t' | '\n' | '\r' )+
@@ -46,7 +46,7 @@ import org.w3c.dom.Node;
  * @since 0.1
  */
 @EqualsAndHashCode(of = "name")
-final class AddDirective implements Directive {
+final class AddDirective implements Directive, Encodable {
 
     /**
      * Name of node to add.
@@ -59,7 +59,16 @@ final class AddDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     AddDirective(final String node) throws XmlContentException {
-        this.name = new Arg(node);
+        this(ArgPool.SHARED.get(node));
+    }
+
+    /**
+     * Public ctor.
+     * @param node Name of node to add
+     * @since 0.23
+     */
+    AddDirective(final Arg node) {
+        this.name = node;
     }
 
     @Override
@@ -67,6 +76,16 @@ final class AddDirective implements Directive {
         return String.format("ADD %s", this.name);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.ADD;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.name};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
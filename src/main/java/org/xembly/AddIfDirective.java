@@ -46,7 +46,7 @@ import org.w3c.dom.NodeList;
  * @since 0.1
  */
 @EqualsAndHashCode(of = "name")
-final class AddIfDirective implements Directive {
+final class AddIfDirective implements Directive, Encodable {
 
     /**
      * Name of node to add.
@@ -59,7 +59,16 @@ final class AddIfDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     AddIfDirective(final String node) throws XmlContentException {
-        this.name = new Arg(node);
+        this(ArgPool.SHARED.get(node));
+    }
+
+    /**
+     * Public ctor.
+     * @param node Name of node to add
+     * @since 0.23
+     */
+    AddIfDirective(final Arg node) {
+        this.name = node;
     }
 
     @Override
@@ -67,6 +76,16 @@ final class AddIfDirective implements Directive {
         return String.format("ADDIF %s", this.name);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.ADDIF;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.name};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * APPEND directive.
+ *
+ * <p>Appends text to every current node, as a new text node. Unlike SET,
+ * it never touches the text which is already there, so a long text can
+ * be built chunk by chunk in linear time. The chunk is not appended to
+ * the last text node, since {@link Text#appendData(String)} copies the
+ * entire text collected so far. Adjacent text nodes are printed as one
+ * text, use {@link Node#normalize()} if you need them merged in the DOM.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "value")
+final class AppendDirective implements Directive, Encodable {
+
+    /**
+     * Text value to append.
+     */
+    private final transient Arg value;
+
+    /**
+     * Public ctor.
+     * @param val Text value to append
+     * @throws XmlContentException If invalid input
+     */
+    AppendDirective(final String val) throws XmlContentException {
+        this(new Arg(val));
+    }
+
+    /**
+     * Public ctor.
+     * @param val Text value to append
+     */
+    AppendDirective(final Arg val) {
+        this.value = val;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("APPEND %s", this.value);
+    }
+
+    @Override
+    public Opcode opcode() {
+        return Opcode.APPEND;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.value};
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack) {
+        final Document doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = Document.class.cast(dom);
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        final String val = this.value.raw();
+        for (final Node node : cursor) {
+            node.appendChild(doc.createTextNode(val));
+        }
+        return cursor;
+    }
+
+}
@@ -34,6 +34,13 @@ import lombok.EqualsAndHashCode;
 /**
  * Argument properly escaped.
  *
+ * <p>The value is validated once, in the constructor, with one table
+ * lookup per character. Its escaped form, see {@link #toString()},
+ * is calculated only when it's requested for the first time.
+ *
+ * <p>Numbers and booleans, see {@link #of(long)}, are never validated
+ * or escaped, since their text can't contain anything illegal.
+ *
  * <p>The class is immutable and thread-safe.
  *
  * @author Yegor Bugayenko (yegor256@gmail.com)
@@ -43,28 +50,97 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode(of = "value")
 final class Arg {
 
+    /**
+     * Ranges of characters illegal in XML (inclusive).
+     * @checkstyle MagicNumber (10 lines)
+     */
+    private static final int[][] RANGES = {
+        {0x00, 0x08},
+        {0x0B, 0x0C},
+        {0x0E, 0x1F},
+        {0x7F, 0x84},
+        {0x86, 0x9F},
+    };
+
+    /**
+     * Characters illegal in XML, see {@link #illegal(char)}.
+     */
+    private static final boolean[] ILLEGAL = Arg.table();
+
+    /**
+     * Small non-negative numbers, made once.
+     */
+    private static final Arg[] NUMBERS = Arg.numbers();
+
+    /**
+     * TRUE.
+     */
+    private static final Arg TRUE = new Arg(Boolean.toString(true), true);
+
+    /**
+     * FALSE.
+     */
+    private static final Arg FALSE = new Arg(Boolean.toString(false), true);
+
     /**
      * Value of it.
      */
     private final transient String value;
 
+    /**
+     * TRUE if the value has nothing to escape.
+     */
+    private final transient boolean plain;
+
+    /**
+     * Escaped and quoted value, calculated on demand.
+     */
+    private transient volatile String quoted;
+
     /**
      * Public ctor.
      * @param val Value of it
      * @throws XmlContentException If fails
      */
     Arg(final String val) throws XmlContentException {
-        for (final char chr : val.toCharArray()) {
-            Arg.legal(chr);
+        final int len = val.length();
+        for (int idx = 0; idx < len; ++idx) {
+            final char chr = val.charAt(idx);
+            if (Arg.illegal(chr)) {
+                Arg.legal(chr);
+            }
         }
         this.value = val;
+        this.plain = false;
+    }
+
+    /**
+     * Ctor of a value which is known to be legal, without validation.
+     * @param val Value of it
+     * @param pln TRUE if it has nothing to escape
+     */
+    private Arg(final String val, final boolean pln) {
+        this.value = val;
+        this.plain = pln;
     }
 
     @Override
     public String toString() {
-        final String escaped = Arg.escape(this.value);
-        return new StringBuilder(this.value.length() + 2 + escaped.length())
-            .append('"').append(escaped).append('"').toString();
+        String text = this.quoted;
+        if (text == null) {
+            final StringBuilder output = new StringBuilder(
+                this.value.length() + 2
+            );
+            output.append('"');
+            if (this.plain) {
+                output.append(this.value);
+            } else {
+                Arg.escape(this.value, output);
+            }
+            text = output.append('"').toString();
+            this.quoted = text;
+        }
+        return text;
     }
 
     /**
@@ -75,98 +151,256 @@ final class Arg {
         return this.value;
     }
 
+    /**
+     * Make an argument of a number.
+     * @param num The number
+     * @return Argument
+     * @since 0.23
+     */
+    static Arg of(final long num) {
+        final Arg arg;
+        if (num >= 0L && num < Arg.NUMBERS.length) {
+            arg = Arg.NUMBERS[(int) num];
+        } else {
+            arg = new Arg(Long.toString(num), true);
+        }
+        return arg;
+    }
+
+    /**
+     * Make an argument of a number.
+     * @param num The number
+     * @return Argument
+     * @since 0.23
+     */
+    static Arg of(final double num) {
+        return new Arg(Double.toString(num), true);
+    }
+
+    /**
+     * Make an argument of a number.
+     * @param num The number
+     * @return Argument
+     * @since 0.23
+     */
+    static Arg of(final float num) {
+        return new Arg(Float.toString(num), true);
+    }
+
+    /**
+     * Make an argument of a boolean.
+     * @param flag The boolean
+     * @return Argument
+     * @since 0.23
+     */
+    static Arg of(final boolean flag) {
+        final Arg arg;
+        if (flag) {
+            arg = Arg.TRUE;
+        } else {
+            arg = Arg.FALSE;
+        }
+        return arg;
+    }
+
     /**
      * Un-escape all XML symbols.
+     *
+     * <p>The text must be quoted, quotes are dropped. Symbols
+     * {@code &quot;}, {@code &apos;}, {@code &lt;}, {@code &gt;},
+     * {@code &amp;}, {@code &#NN;} and {@code &#xHH;} are decoded.
+     *
      * @param text XML text
      * @return Clean text
      * @throws XmlContentException If fails
      */
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     public static String unescape(final String text)
         throws XmlContentException {
-        final char[] chars = text.toCharArray();
-        if (chars.length < 2) {
+        if (text.length() < 2) {
             throw new IllegalArgumentException(
                 "internal error, argument can't be shorter than 2 chars"
             );
         }
-        final int len = chars.length - 1;
-        final StringBuilder output = new StringBuilder(text.length());
-        for (int idx = 1; idx < len; ++idx) {
-            if (chars[idx] == '&') {
-                final StringBuilder sbuf = new StringBuilder(0);
-                while (chars[idx] != ';') {
-                    // @checkstyle ModifiedControlVariable (1 line)
-                    ++idx;
-                    if (idx == chars.length) {
-                        throw new XmlContentException(
-                            "reached EOF while parsing XML symbol"
-                        );
-                    }
-                    sbuf.append(chars[idx]);
+        final int len = text.length() - 1;
+        int amp = text.indexOf('&', 1);
+        final String clean;
+        if (amp < 0 || amp >= len) {
+            clean = text.substring(1, len);
+        } else {
+            final StringBuilder output = new StringBuilder(len);
+            int start = 1;
+            while (amp >= 0 && amp < len) {
+                final int semi = text.indexOf(';', amp);
+                if (semi < 0 || semi >= len) {
+                    throw new XmlContentException(
+                        "reached EOF while parsing XML symbol"
+                    );
                 }
-                output.append(Arg.symbol(sbuf.substring(0, sbuf.length() - 1)));
-            } else {
-                output.append(chars[idx]);
+                output.append(text, start, amp);
+                Arg.symbol(text, amp + 1, semi, output);
+                start = semi + 1;
+                amp = text.indexOf('&', start);
             }
+            clean = output.append(text, start, len).toString();
         }
-        return output.toString();
+        return clean;
+    }
+
+    /**
+     * Is it a character which is not legal in XML.
+     * @param chr Character
+     * @return TRUE if it's not allowed
+     */
+    static boolean illegal(final char chr) {
+        return chr < Arg.ILLEGAL.length && Arg.ILLEGAL[chr];
     }
 
     /**
      * Escape all unprintable characters.
      * @param text Raw text
-     * @return Clean text
+     * @param output Where to write clean text
      */
-    private static String escape(final String text) {
-        final StringBuilder output = new StringBuilder(text.length());
-        for (final char chr : text.toCharArray()) {
-            if (chr < ' ') {
-                output.append("&#").append((int) chr).append(';');
-            } else if (chr == '"') {
-                output.append("&quot;");
-            } else if (chr == '&') {
-                output.append("&amp;");
-            } else if (chr == '\'') {
-                output.append("&apos;");
-            } else if (chr == '<') {
-                output.append("&lt;");
-            } else if (chr == '>') {
-                output.append("&gt;");
-            } else {
-                output.append(chr);
+    private static void escape(final String text, final StringBuilder output) {
+        final int len = text.length();
+        int start = 0;
+        for (int idx = 0; idx < len; ++idx) {
+            final char chr = text.charAt(idx);
+            final String symbol = Arg.symbol(chr);
+            if (symbol != null || chr < ' ') {
+                output.append(text, start, idx);
+                if (symbol == null) {
+                    output.append("&#").append((int) chr).append(';');
+                } else {
+                    output.append(symbol);
+                }
+                start = idx + 1;
             }
         }
-        return output.toString();
+        output.append(text, start, len);
+    }
+
+    /**
+     * Get XML symbol of a character, if it has one.
+     * @param chr Character
+     * @return Symbol or NULL
+     */
+    private static String symbol(final char chr) {
+        final String symbol;
+        if (chr == '"') {
+            symbol = "&quot;";
+        } else if (chr == '&') {
+            symbol = "&amp;";
+        } else if (chr == '\'') {
+            symbol = "&apos;";
+        } else if (chr == '<') {
+            symbol = "&lt;";
+        } else if (chr == '>') {
+            symbol = "&gt;";
+        } else {
+            symbol = null;
+        }
+        return symbol;
     }
 
     /**
      * Convert XML symbol to char.
-     * @param symbol XML symbol, without leading ampersand
-     * @return Character
+     * @param text Text with the symbol
+     * @param start Start of the symbol, after the leading ampersand
+     * @param end End of the symbol, at the trailing semicolon
+     * @param output Where to write the character
      * @throws XmlContentException If fails
+     * @checkstyle CyclomaticComplexity (50 lines)
      */
-    private static char symbol(final String symbol) throws XmlContentException {
-        final char chr;
-        if ('#' == symbol.charAt(0)) {
-            final int num = Integer.parseInt(symbol.substring(1));
-            chr = Arg.legal((char) num);
-        } else if ("apos".equalsIgnoreCase(symbol)) {
-            chr = '\'';
-        } else if ("quot".equalsIgnoreCase(symbol)) {
-            chr = '"';
-        } else if ("lt".equalsIgnoreCase(symbol)) {
-            chr = '<';
-        } else if ("gt".equalsIgnoreCase(symbol)) {
-            chr = '>';
-        } else if ("amp".equalsIgnoreCase(symbol)) {
-            chr = '&';
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static void symbol(final String text, final int start,
+        final int end, final StringBuilder output)
+        throws XmlContentException {
+        final int len = end - start;
+        if (len > 1 && text.charAt(start) == '#') {
+            final int code;
+            if (len > 2 && (text.charAt(start + 1) == 'x'
+                || text.charAt(start + 1) == 'X')) {
+                // @checkstyle MagicNumber (1 line)
+                code = Arg.number(text, start + 2, end, 16);
+            } else {
+                // @checkstyle MagicNumber (1 line)
+                code = Arg.number(text, start + 1, end, 10);
+            }
+            if (code <= Character.MAX_VALUE) {
+                output.append(Arg.legal((char) code));
+            } else if (code <= Character.MAX_CODE_POINT) {
+                output.appendCodePoint(code);
+            } else {
+                throw new XmlContentException(
+                    String.format(
+                        "XML symbol &%s; is out of Unicode range",
+                        text.substring(start, end)
+                    )
+                );
+            }
+        } else if (Arg.named(text, start, len, "apos")) {
+            output.append('\'');
+        } else if (Arg.named(text, start, len, "quot")) {
+            output.append('"');
+        } else if (Arg.named(text, start, len, "lt")) {
+            output.append('<');
+        } else if (Arg.named(text, start, len, "gt")) {
+            output.append('>');
+        } else if (Arg.named(text, start, len, "amp")) {
+            output.append('&');
         } else {
             throw new XmlContentException(
-                String.format("unknown XML symbol &%s;", symbol)
+                String.format(
+                    "unknown XML symbol &%s;", text.substring(start, end)
+                )
             );
         }
-        return chr;
+    }
+
+    /**
+     * Is it the named symbol, case-insensitively.
+     * @param text Text with the symbol
+     * @param start Start of the symbol
+     * @param len Length of the symbol
+     * @param name Name of the symbol
+     * @return TRUE if it is
+     */
+    private static boolean named(final String text, final int start,
+        final int len, final String name) {
+        return len == name.length()
+            && text.regionMatches(true, start, name, 0, len);
+    }
+
+    /**
+     * Parse number of a numeric XML symbol.
+     * @param text Text with the symbol
+     * @param start Start of digits
+     * @param end End of digits (exclusive)
+     * @param radix Radix
+     * @return The number
+     * @throws XmlContentException If it's not a number
+     */
+    private static int number(final String text, final int start,
+        final int end, final int radix) throws XmlContentException {
+        if (start == end) {
+            throw new XmlContentException(
+                "empty number in numeric XML symbol"
+            );
+        }
+        int num = 0;
+        for (int idx = start; idx < end; ++idx) {
+            final int digit = Character.digit(text.charAt(idx), radix);
+            if (digit < 0 || num > Character.MAX_CODE_POINT) {
+                throw new XmlContentException(
+                    String.format(
+                        "invalid number '%s' in numeric XML symbol",
+                        text.substring(start, end)
+                    )
+                );
+            }
+            num = num * radix + digit;
+        }
+        return num;
     }
 
     /**
@@ -175,34 +409,49 @@ final class Arg {
      * @return The same number
      * @throws XmlContentException If illegal
      */
-    private static char legal(final char chr) throws XmlContentException {
-        // @checkstyle MagicNumber (5 lines)
-        Arg.range(chr, 0x00, 0x08);
-        Arg.range(chr, 0x0B, 0x0C);
-        Arg.range(chr, 0x0E, 0x1F);
-        Arg.range(chr, 0x7F, 0x84);
-        Arg.range(chr, 0x86, 0x9F);
+    static char legal(final char chr) throws XmlContentException {
+        if (Arg.illegal(chr)) {
+            for (final int[] range : Arg.RANGES) {
+                if (chr >= range[0] && chr <= range[1]) {
+                    throw new XmlContentException(
+                        String.format(
+                            // @checkstyle LineLength (1 line)
+                            "Character #%02X is in the restricted XML range #%02X-#%02X, see http://www.w3.org/TR/2004/REC-xml11-20040204/#charsets",
+                            (int) chr, range[0], range[1]
+                        )
+                    );
+                }
+            }
+        }
         return chr;
     }
 
     /**
-     * Throw if number is in the range.
-     * @param chr Char number
-     * @param left Left number (inclusive)
-     * @param right Right number (inclusive)
-     * @throws XmlContentException If illegal
+     * Make a table of characters which are not legal in XML.
+     * @return Table, where illegal characters are TRUE
+     * @checkstyle MagicNumber (5 lines)
      */
-    private static void range(final char chr, final int left, final int right)
-        throws XmlContentException {
-        if (chr >= left && chr <= right) {
-            throw new XmlContentException(
-                String.format(
-                    // @checkstyle LineLength (1 line)
-                    "Character #%02X is in the restricted XML range #%02X-#%02X, see http://www.w3.org/TR/2004/REC-xml11-20040204/#charsets",
-                    (int) chr, left, right
-                )
-            );
+    private static boolean[] table() {
+        final boolean[] table = new boolean[0xA0];
+        for (final int[] range : Arg.RANGES) {
+            for (int chr = range[0]; chr <= range[1]; ++chr) {
+                table[chr] = true;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Make arguments of small non-negative numbers.
+     * @return Arguments, where each number is at its own index
+     * @checkstyle MagicNumber (5 lines)
+     */
+    private static Arg[] numbers() {
+        final Arg[] args = new Arg[1024];
+        for (int num = 0; num < args.length; ++num) {
+            args[num] = new Arg(Integer.toString(num), true);
         }
+        return args;
     }
 
 }
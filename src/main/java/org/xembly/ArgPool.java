@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of arguments, to share the ones which repeat.
+ *
+ * <p>Generated scripts use the same element names and XPath expressions
+ * again and again. The pool keeps one {@link Arg} per distinct string,
+ * validated only once, as long as somebody else refers to it. Both
+ * keys and values are weak, so the pool never keeps an argument alive.
+ * Long strings are not pooled, and every stripe of the pool is bounded,
+ * but a key already in a full stripe is still refreshed, when its
+ * argument has been collected.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+final class ArgPool {
+
+    /**
+     * Shared instance.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    public static final ArgPool SHARED = new ArgPool(64, 4096);
+
+    /**
+     * Number of stripes, a power of two.
+     */
+    private static final int STRIPES = 16;
+
+    /**
+     * Stripes.
+     */
+    private final transient Map<String, WeakReference<Arg>>[] stripes;
+
+    /**
+     * Maximum length of a pooled string.
+     */
+    private final transient int length;
+
+    /**
+     * Maximum number of arguments in one stripe.
+     */
+    private final transient int max;
+
+    /**
+     * Ctor.
+     * @param len Maximum length of a pooled string
+     * @param total Maximum number of arguments in one stripe
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ArgPool(final int len, final int total) {
+        this.length = len;
+        this.max = total;
+        this.stripes = new Map[ArgPool.STRIPES];
+        for (int idx = 0; idx < ArgPool.STRIPES; ++idx) {
+            this.stripes[idx] = new WeakHashMap<String, WeakReference<Arg>>(0);
+        }
+    }
+
+    /**
+     * Get an argument from the pool, or create it.
+     * @param text Value of the argument
+     * @return Argument
+     * @throws XmlContentException If the value is not valid
+     */
+    public Arg get(final String text) throws XmlContentException {
+        final Arg arg;
+        if (text.length() > this.length) {
+            arg = new Arg(text);
+        } else {
+            final Map<String, WeakReference<Arg>> stripe =
+                this.stripes[text.hashCode() & (ArgPool.STRIPES - 1)];
+            synchronized (stripe) {
+                final WeakReference<Arg> ref = stripe.get(text);
+                Arg found = null;
+                if (ref != null) {
+                    found = ref.get();
+                }
+                if (found == null) {
+                    found = new Arg(text);
+                    if (ref != null || stripe.size() < this.max) {
+                        stripe.put(found.raw(), new WeakReference<Arg>(found));
+                    }
+                }
+                arg = found;
+            }
+        }
+        return arg;
+    }
+
+}
@@ -43,7 +43,7 @@ import org.w3c.dom.Node;
  * @since 0.1
  */
 @EqualsAndHashCode(of = { "name", "value" })
-final class AttrDirective implements Directive {
+final class AttrDirective implements Directive, Encodable {
 
     /**
      * Attribute name.
@@ -63,8 +63,18 @@ final class AttrDirective implements Directive {
      */
     AttrDirective(final String attr, final String val)
         throws XmlContentException {
-        this.name = new Arg(attr);
-        this.value = new Arg(val);
+        this(ArgPool.SHARED.get(attr), new Arg(val));
+    }
+
+    /**
+     * Public ctor.
+     * @param attr Attribute name
+     * @param val Text value to set
+     * @since 0.23
+     */
+    AttrDirective(final Arg attr, final Arg val) {
+        this.name = attr;
+        this.value = val;
     }
 
     @Override
@@ -72,6 +82,16 @@ final class AttrDirective implements Directive {
         return String.format("ATTR %s, %s", this.name, this.value);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.ATTR;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.name, this.value};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
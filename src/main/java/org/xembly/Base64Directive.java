@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * BASE64 directive.
+ *
+ * <p>Sets text content of all current nodes to binary data encoded
+ * in Base64, see RFC 4648, without line breaks. The bytes are taken
+ * only when the directive is executed and encoded chunk by chunk. The
+ * content of the nodes is removed once, and then every encoded chunk is
+ * appended to them as a separate text node, before the next one is
+ * read. That's why no more than one chunk is kept on heap, except
+ * the DOM itself.
+ *
+ * <p>A stream is consumed only once, but not closed, that is the
+ * responsibility of its owner. A file is opened and closed on every
+ * execution. A buffer is read from its position to its limit, which
+ * are not changed.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "source")
+final class Base64Directive implements Directive {
+
+    /**
+     * Alphabet of Base64.
+     */
+    private static final char[] ALPHABET = (
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+    ).toCharArray();
+
+    /**
+     * Size of a chunk to read, in bytes, must be a multiple of three.
+     */
+    private static final int CHUNK = 3 << 11;
+
+    /**
+     * Source of bytes, either a stream, a buffer, or a file.
+     */
+    private final transient Object source;
+
+    /**
+     * Is the stream consumed already?
+     */
+    private final transient AtomicBoolean consumed;
+
+    /**
+     * Public ctor.
+     * @param src Stream to take the bytes from
+     */
+    Base64Directive(final InputStream src) {
+        this((Object) src);
+    }
+
+    /**
+     * Public ctor.
+     * @param src Buffer to take the bytes from
+     */
+    Base64Directive(final ByteBuffer src) {
+        this((Object) src);
+    }
+
+    /**
+     * Public ctor.
+     * @param src File to take the bytes from
+     */
+    Base64Directive(final File src) {
+        this((Object) src);
+    }
+
+    /**
+     * Private ctor.
+     * @param src Source of bytes
+     */
+    private Base64Directive(final Object src) {
+        this.source = src;
+        this.consumed = new AtomicBoolean();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "BASE64 <%s>", this.source.getClass().getSimpleName()
+        );
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final Document doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = Document.class.cast(dom);
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        final Collection<Node> targets = new LinkedList<Node>();
+        for (final Node node : cursor) {
+            node.setTextContent("");
+            targets.add(node);
+        }
+        try {
+            this.encode(doc, targets);
+        } catch (final IOException ex) {
+            throw new ImpossibleModificationException(
+                String.format("failed to read %s", this), ex
+            );
+        }
+        return cursor;
+    }
+
+    /**
+     * Read all bytes from the source, encode them and append to nodes.
+     * @param doc Document
+     * @param targets Nodes to append to
+     * @throws IOException If can't read
+     * @throws ImpossibleModificationException If the stream is consumed
+     */
+    private void encode(final Document doc, final Collection<Node> targets)
+        throws IOException, ImpossibleModificationException {
+        if (this.source instanceof ByteBuffer) {
+            Base64Directive.encode(
+                ByteBuffer.class.cast(this.source).duplicate(), doc, targets
+            );
+        } else if (this.source instanceof File) {
+            final InputStream input = new FileInputStream(
+                File.class.cast(this.source)
+            );
+            try {
+                Base64Directive.encode(input, doc, targets);
+            } finally {
+                input.close();
+            }
+        } else {
+            if (!this.consumed.compareAndSet(false, true)) {
+                throw new ImpossibleModificationException(
+                    String.format("the stream is consumed already by %s", this)
+                );
+            }
+            Base64Directive.encode(
+                InputStream.class.cast(this.source), doc, targets
+            );
+        }
+    }
+
+    /**
+     * Encode all remaining bytes of the buffer and append to nodes.
+     * @param buffer The buffer
+     * @param doc Document
+     * @param targets Nodes to append to
+     */
+    private static void encode(final ByteBuffer buffer, final Document doc,
+        final Collection<Node> targets) {
+        final byte[] bytes = new byte[Base64Directive.CHUNK];
+        final char[] chars = new char[Base64Directive.length(bytes.length)];
+        while (buffer.hasRemaining()) {
+            final int len = Math.min(buffer.remaining(), bytes.length);
+            buffer.get(bytes, 0, len);
+            Base64Directive.append(
+                doc, targets,
+                new String(chars, 0, Base64Directive.encode(bytes, len, chars))
+            );
+        }
+    }
+
+    /**
+     * Encode all bytes of the stream and append to nodes.
+     * @param input The stream
+     * @param doc Document
+     * @param targets Nodes to append to
+     * @throws IOException If can't read
+     */
+    private static void encode(final InputStream input, final Document doc,
+        final Collection<Node> targets) throws IOException {
+        final byte[] bytes = new byte[Base64Directive.CHUNK];
+        final char[] chars = new char[Base64Directive.length(bytes.length)];
+        for (int len = Base64Directive.fill(input, bytes); len > 0;
+            len = Base64Directive.fill(input, bytes)) {
+            Base64Directive.append(
+                doc, targets,
+                new String(chars, 0, Base64Directive.encode(bytes, len, chars))
+            );
+        }
+    }
+
+    /**
+     * Append a chunk of text to all nodes.
+     * @param doc Document
+     * @param targets Nodes to append to
+     * @param text The chunk
+     */
+    private static void append(final Document doc,
+        final Collection<Node> targets, final String text) {
+        for (final Node node : targets) {
+            node.appendChild(doc.createTextNode(text));
+        }
+    }
+
+    /**
+     * Read bytes from the stream until the array is full or EOF.
+     * @param input The stream
+     * @param bytes Where to read to
+     * @return How many bytes were read
+     * @throws IOException If can't read
+     */
+    private static int fill(final InputStream input, final byte[] bytes)
+        throws IOException {
+        int total = 0;
+        int len = 0;
+        while (total < bytes.length && len >= 0) {
+            len = input.read(bytes, total, bytes.length - total);
+            if (len > 0) {
+                total += len;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Encode a chunk of bytes, padding the last group if it's incomplete.
+     * @param bytes Bytes to encode
+     * @param len How many of them
+     * @param chars Where to write the characters
+     * @return How many characters were written
+     * @checkstyle MagicNumber (30 lines)
+     */
+    private static int encode(final byte[] bytes, final int len,
+        final char[] chars) {
+        int pos = 0;
+        for (int idx = 0; idx < len; idx += 3) {
+            final int rest = len - idx;
+            int group = (bytes[idx] & 0xFF) << 16;
+            if (rest > 1) {
+                group |= (bytes[idx + 1] & 0xFF) << 8;
+            }
+            if (rest > 2) {
+                group |= bytes[idx + 2] & 0xFF;
+            }
+            chars[pos] = Base64Directive.ALPHABET[group >>> 18 & 0x3F];
+            chars[pos + 1] = Base64Directive.ALPHABET[group >>> 12 & 0x3F];
+            chars[pos + 2] = '=';
+            chars[pos + 3] = '=';
+            if (rest > 1) {
+                chars[pos + 2] = Base64Directive.ALPHABET[group >>> 6 & 0x3F];
+            }
+            if (rest > 2) {
+                chars[pos + 3] = Base64Directive.ALPHABET[group & 0x3F];
+            }
+            pos += 4;
+        }
+        return pos;
+    }
+
+    /**
+     * Length of Base64 text for the given number of bytes.
+     * @param bytes Number of bytes
+     * @return Number of characters
+     * @checkstyle MagicNumber (3 lines)
+     */
+    private static int length(final int bytes) {
+        return (bytes + 2) / 3 * 4;
+    }
+
+}
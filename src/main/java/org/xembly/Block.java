@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Node;
+
+/**
+ * Block of directives, nested into another directive.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "dirs")
+final class Block implements Iterable<Directive> {
+
+    /**
+     * Directives.
+     */
+    private final transient Directive[] dirs;
+
+    /**
+     * Does it have directives with parameters?
+     */
+    private final transient boolean bindable;
+
+    /**
+     * Ctor.
+     * @param list Directives
+     */
+    Block(final Iterable<Directive> list) {
+        final Collection<Directive> all = new ArrayList<Directive>(0);
+        boolean slots = false;
+        for (final Directive dir : list) {
+            all.add(dir);
+            slots |= dir instanceof Bindable;
+        }
+        this.dirs = all.toArray(new Directive[all.size()]);
+        this.bindable = slots;
+    }
+
+    @Override
+    public Iterator<Directive> iterator() {
+        return Arrays.asList(this.dirs).iterator();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder(0);
+        for (final Directive dir : this.dirs) {
+            text.append(dir).append(';');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Bind parameters of its directives to values.
+     * @param values Values of parameters, by their names
+     * @return Block with parameters bound
+     */
+    public Block bind(final Map<String, ?> values) {
+        final Block block;
+        if (this.bindable && !values.isEmpty()) {
+            final Collection<Directive> bound =
+                new ArrayList<Directive>(this.dirs.length);
+            for (final Directive dir : this.dirs) {
+                if (dir instanceof Bindable) {
+                    bound.add(Bindable.class.cast(dir).bind(values));
+                } else {
+                    bound.add(dir);
+                }
+            }
+            block = new Block(bound);
+        } else {
+            block = this;
+        }
+        return block;
+    }
+
+    /**
+     * Execute all directives, one by one.
+     * @param dom Document
+     * @param cursor Nodes we're currently at
+     * @param stack Execution stack
+     * @return Nodes we're at after the last directive
+     * @throws ImpossibleModificationException If can't do it
+     */
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        Directive.Cursor current = cursor;
+        for (int idx = 0; idx < this.dirs.length; ++idx) {
+            try {
+                current = this.dirs[idx].exec(dom, current, stack);
+            } catch (final ImpossibleModificationException ex) {
+                throw new ImpossibleModificationException(
+                    String.format(
+                        "directive #%d in block: %s", idx + 1, this.dirs[idx]
+                    ),
+                    ex
+                );
+            } catch (final DOMException ex) {
+                throw new ImpossibleModificationException(
+                    String.format(
+                        "DOM exception at dir #%d in block: %s",
+                        idx + 1, this.dirs[idx]
+                    ),
+                    ex
+                );
+            }
+        }
+        return current;
+    }
+
+}
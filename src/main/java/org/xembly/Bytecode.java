@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Directives in a compact binary form.
+ *
+ * <p>This is how a script is encoded: first, a header with a format
+ * version, then a table of all distinct arguments, then directives,
+ * each one as an opcode followed by indexes of its arguments in
+ * the table. Numbers are variable-length (seven bits per byte), strings
+ * are UTF-8 with their length in front. Arguments repeated in a script,
+ * like names of elements or XPath expressions, are stored only once.
+ *
+ * <pre> byte[] bytes = Bytecode.encode(new Directives("ADD 'x';"));
+ * new Xembler(new Bytecode(bytes)).xml();</pre>
+ *
+ * <p>Decoding doesn't copy the buffer and doesn't use the Xembly parser.
+ * The table of arguments is decoded and validated once, in the
+ * constructor, while directives are decoded only when iterated.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class Bytecode implements Iterable<Directive> {
+
+    /**
+     * Version of the format, the first byte of the header.
+     *
+     * <p>It is changed every time opcodes are added, since an older
+     * decoder can't understand them.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Magic bytes of the header, right after the version.
+     */
+    private static final byte[] MAGIC = {'X', 'M', 'B'};
+
+    /**
+     * Charset of strings.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * All opcodes, by their ordinals.
+     */
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    /**
+     * Table of arguments.
+     */
+    private final transient Arg[] table;
+
+    /**
+     * Total number of directives.
+     */
+    private final transient int total;
+
+    /**
+     * Encoded directives, positioned at the first one.
+     */
+    private final transient ByteBuffer body;
+
+    /**
+     * Public ctor.
+     * @param bytes Encoded directives
+     */
+    public Bytecode(final byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Public ctor.
+     *
+     * <p>Bytes from the current position of the buffer to its limit
+     * are used. The buffer itself is not modified.
+     *
+     * @param buffer Encoded directives
+     */
+    public Bytecode(final ByteBuffer buffer) {
+        final ByteBuffer buf = buffer.slice();
+        try {
+            final int version = buf.get();
+            for (final byte magic : Bytecode.MAGIC) {
+                if (buf.get() != magic) {
+                    throw new IllegalArgumentException(
+                        "this is not a Xembly bytecode"
+                    );
+                }
+            }
+            if (version != Bytecode.VERSION) {
+                throw new IllegalArgumentException(
+                    String.format(
+                        "bytecode version %d is not supported, %d expected",
+                        version, Bytecode.VERSION
+                    )
+                );
+            }
+            final int size = Bytecode.varint(buf);
+            if (size > buf.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            this.table = new Arg[size];
+            for (int idx = 0; idx < this.table.length; ++idx) {
+                this.table[idx] = new Arg(Bytecode.string(buf));
+            }
+            this.total = Bytecode.varint(buf);
+        } catch (final BufferUnderflowException ex) {
+            throw new IllegalArgumentException("bytecode is truncated", ex);
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                "invalid XML content in bytecode", ex
+            );
+        }
+        this.body = buf.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Encode directives.
+     *
+     * <p>All directives must be the ones created by {@link Directives},
+     * otherwise {@link IllegalArgumentException} is thrown.
+     *
+     * @param dirs Directives to encode
+     * @return Bytes
+     */
+    public static byte[] encode(final Iterable<Directive> dirs) {
+        final Map<Arg, Integer> strings = new LinkedHashMap<Arg, Integer>(0);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int count = 0;
+        for (final Directive dir : dirs) {
+            if (!(dir instanceof Encodable)) {
+                throw new IllegalArgumentException(
+                    String.format("directive %s can't be encoded", dir)
+                );
+            }
+            final Encodable enc = Encodable.class.cast(dir);
+            Bytecode.varint(body, enc.opcode().ordinal());
+            for (final Arg arg : enc.args()) {
+                Integer idx = strings.get(arg);
+                if (idx == null) {
+                    idx = strings.size();
+                    strings.put(arg, idx);
+                }
+                Bytecode.varint(body, idx);
+            }
+            ++count;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(
+            body.size() + strings.size() * Bytecode.MAGIC.length
+        );
+        out.write(Bytecode.VERSION);
+        out.write(Bytecode.MAGIC, 0, Bytecode.MAGIC.length);
+        Bytecode.varint(out, strings.size());
+        for (final Arg arg : strings.keySet()) {
+            final byte[] bytes = arg.raw().getBytes(Bytecode.UTF_8);
+            Bytecode.varint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        Bytecode.varint(out, count);
+        final byte[] bytes = body.toByteArray();
+        out.write(bytes, 0, bytes.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Total number of directives.
+     * @return Total
+     */
+    public int size() {
+        return this.total;
+    }
+
+    @Override
+    public Iterator<Directive> iterator() {
+        return new Bytecode.Decoder(this.table, this.total, this.body);
+    }
+
+    /**
+     * Write variable-length number.
+     * @param out Output
+     * @param num The number, positive
+     * @checkstyle MagicNumber (10 lines)
+     */
+    private static void varint(final ByteArrayOutputStream out,
+        final int num) {
+        int rest = num;
+        while ((rest & ~0x7F) != 0) {
+            out.write(rest & 0x7F | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+
+    /**
+     * Read variable-length number, which must fit into a non-negative
+     * {@code int}.
+     * @param buf Buffer
+     * @return The number
+     * @checkstyle MagicNumber (20 lines)
+     */
+    private static int varint(final ByteBuffer buf) {
+        int num = 0;
+        int shift = 0;
+        while (true) {
+            final byte next = buf.get();
+            if (shift == 28 && (next & 0x78) != 0) {
+                throw new IllegalArgumentException(
+                    "variable-length number is out of range in bytecode"
+                );
+            }
+            num |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IllegalArgumentException(
+                    "variable-length number is too long in bytecode"
+                );
+            }
+        }
+        return num;
+    }
+
+    /**
+     * Read length-prefixed UTF-8 string.
+     * @param buf Buffer
+     * @return The string
+     */
+    private static String string(final ByteBuffer buf) {
+        final int len = Bytecode.varint(buf);
+        if (len > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String text;
+        if (buf.hasArray()) {
+            text = new String(
+                buf.array(), buf.arrayOffset() + buf.position(), len,
+                Bytecode.UTF_8
+            );
+            buf.position(buf.position() + len);
+        } else {
+            final ByteBuffer slice = buf.slice();
+            slice.limit(len);
+            text = Bytecode.UTF_8.decode(slice).toString();
+            buf.position(buf.position() + len);
+        }
+        return text;
+    }
+
+    /**
+     * Iterator of directives, decoding them one by one.
+     */
+    private static final class Decoder implements Iterator<Directive> {
+        /**
+         * Table of arguments.
+         */
+        private final transient Arg[] table;
+        /**
+         * Directives left.
+         */
+        private transient int left;
+        /**
+         * Buffer.
+         */
+        private final transient ByteBuffer buf;
+        /**
+         * Ctor.
+         * @param args Table of arguments
+         * @param total Total number of directives
+         * @param body Encoded directives
+         */
+        Decoder(final Arg[] args, final int total, final ByteBuffer body) {
+            this.table = args;
+            this.left = total;
+            this.buf = body.duplicate();
+        }
+        @Override
+        public boolean hasNext() {
+            return this.left > 0;
+        }
+        @Override
+        public Directive next() {
+            if (this.left == 0) {
+                throw new NoSuchElementException("no more directives");
+            }
+            --this.left;
+            try {
+                final int code = Bytecode.varint(this.buf);
+                if (code >= Bytecode.OPCODES.length) {
+                    throw new IllegalArgumentException(
+                        String.format("unknown opcode %d in bytecode", code)
+                    );
+                }
+                final Opcode opcode = Bytecode.OPCODES[code];
+                final Arg[] args = new Arg[opcode.arity()];
+                for (int idx = 0; idx < args.length; ++idx) {
+                    final int pos = Bytecode.varint(this.buf);
+                    if (pos >= this.table.length) {
+                        throw new IllegalArgumentException(
+                            String.format("unknown argument #%d", pos)
+                        );
+                    }
+                    args[idx] = this.table[pos];
+                }
+                return opcode.create(args);
+            } catch (final BufferUnderflowException ex) {
+                throw new IllegalArgumentException(
+                    "bytecode is truncated", ex
+                );
+            }
+        }
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove()");
+        }
+    }
+
+}
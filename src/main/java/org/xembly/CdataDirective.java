@@ -43,7 +43,7 @@ import org.w3c.dom.Node;
  * @since 0.17
  */
 @EqualsAndHashCode(of = "value")
-final class CdataDirective implements Directive {
+final class CdataDirective implements Directive, Encodable {
 
     /**
      * Text value to set.
@@ -56,7 +56,16 @@ final class CdataDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     CdataDirective(final String val) throws XmlContentException {
-        this.value = new Arg(val);
+        this(new Arg(val));
+    }
+
+    /**
+     * Public ctor.
+     * @param val Text value to set
+     * @since 0.23
+     */
+    CdataDirective(final Arg val) {
+        this.value = val;
     }
 
     @Override
@@ -64,6 +73,16 @@ final class CdataDirective implements Directive {
         return String.format("CDATA %s", this.value);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.CDATA;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.value};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
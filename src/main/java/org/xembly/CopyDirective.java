@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * COPY directive.
+ *
+ * <p>Appends a deep copy of every current node to every node found by
+ * the XPath expression, evaluated against the node being copied, and
+ * makes the copies current. All targets are found before anything is
+ * copied.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "expr")
+final class CopyDirective implements Directive, Encodable {
+
+    /**
+     * XPath of the target.
+     */
+    private final transient Arg expr;
+
+    /**
+     * Directive to find targets with.
+     */
+    private final transient Directive locate;
+
+    /**
+     * Public ctor.
+     * @param path XPath of the target
+     * @throws XmlContentException If invalid input
+     */
+    CopyDirective(final String path) throws XmlContentException {
+        this(ArgPool.SHARED.get(path));
+    }
+
+    /**
+     * Public ctor.
+     * @param path XPath of the target
+     */
+    CopyDirective(final Arg path) {
+        this.expr = path;
+        this.locate = new XpathDirective(path);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("COPY %s", this.expr);
+    }
+
+    @Override
+    public Opcode opcode() {
+        return Opcode.COPY;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.expr};
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final List<Directive.Cursor> targets =
+            new ArrayList<Directive.Cursor>(cursor.size());
+        for (final Node node : cursor) {
+            targets.add(
+                this.locate.exec(
+                    dom, new DomCursor(Collections.singletonList(node)), stack
+                )
+            );
+        }
+        final Collection<Node> copies = new ArrayList<Node>(cursor.size());
+        int idx = 0;
+        for (final Node node : cursor) {
+            for (final Node target : targets.get(idx)) {
+                copies.add(target.appendChild(node.cloneNode(true)));
+            }
+            ++idx;
+        }
+        return new DomCursor(copies);
+    }
+
+}
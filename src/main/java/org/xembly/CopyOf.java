@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Directives that reproduce a DOM node, generated on demand.
+ *
+ * <p>The source tree is walked with an explicit stack, one frame per
+ * open element, so neither the depth of the tree nor its size affect
+ * the call stack, and no directives are kept in memory except the few
+ * produced by the current step. The tree must not be modified while
+ * the directives are being iterated.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ * @see Directives#copyOf(Node)
+ */
+@EqualsAndHashCode(of = "node")
+final class CopyOf implements Iterable<Directive> {
+
+    /**
+     * Node to copy.
+     */
+    private final transient Node node;
+
+    /**
+     * Ctor.
+     * @param src Node to copy
+     */
+    CopyOf(final Node src) {
+        this.node = src;
+    }
+
+    @Override
+    public String toString() {
+        return new Directives(this).toString();
+    }
+
+    @Override
+    public Iterator<Directive> iterator() {
+        return new CopyOf.Walk(this.node);
+    }
+
+    /**
+     * Walk through the tree.
+     */
+    private static final class Walk implements Iterator<Directive> {
+        /**
+         * Open elements, the innermost on top.
+         */
+        private final transient LinkedList<CopyOf.Frame> stack =
+            new LinkedList<CopyOf.Frame>();
+        /**
+         * Directives ready to be returned.
+         */
+        private final transient LinkedList<Directive> ready =
+            new LinkedList<Directive>();
+        /**
+         * Ctor.
+         * @param root Root node
+         */
+        Walk(final Node root) {
+            this.open(root);
+        }
+        @Override
+        public boolean hasNext() {
+            while (this.ready.isEmpty() && !this.stack.isEmpty()) {
+                this.step();
+            }
+            return !this.ready.isEmpty();
+        }
+        @Override
+        public Directive next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("no more directives");
+            }
+            return this.ready.removeFirst();
+        }
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+        /**
+         * Open a node: remember its children and copy its attributes.
+         * @param src The node
+         */
+        private void open(final Node src) {
+            this.stack.addFirst(new CopyOf.Frame(src));
+            if (src.hasAttributes()) {
+                final NamedNodeMap attrs = src.getAttributes();
+                final int len = attrs.getLength();
+                for (int idx = 0; idx < len; ++idx) {
+                    final Attr attr = Attr.class.cast(attrs.item(idx));
+                    this.ready.add(
+                        CopyOf.attr(attr.getNodeName(), attr.getNodeValue())
+                    );
+                }
+            }
+        }
+        /**
+         * Take the next child of the innermost open node, or close it.
+         * @checkstyle CyclomaticComplexity (50 lines)
+         */
+        @SuppressWarnings("PMD.StdCyclomaticComplexity")
+        private void step() {
+            final CopyOf.Frame frame = this.stack.getFirst();
+            if (frame.pos == frame.len) {
+                this.stack.removeFirst();
+                if (!this.stack.isEmpty()) {
+                    this.ready.add(UpDirective.INSTANCE);
+                }
+                return;
+            }
+            final int idx = frame.pos;
+            final Node child = frame.children.item(idx);
+            ++frame.pos;
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    this.ready.add(CopyOf.add(child.getNodeName()));
+                    this.open(child);
+                    break;
+                case Node.ATTRIBUTE_NODE:
+                    this.ready.add(
+                        CopyOf.attr(child.getNodeName(), child.getNodeValue())
+                    );
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    if (frame.len == 1) {
+                        this.ready.add(CopyOf.set(child.getTextContent()));
+                    } else if (!child.getTextContent().trim().isEmpty()) {
+                        throw new IllegalArgumentException(
+                            String.format(
+                                // @checkstyle LineLength (1 line)
+                                "TEXT node #%d is not allowed together with other %d nodes in %s",
+                                idx, frame.len, child.getNodeName()
+                            )
+                        );
+                    }
+                    break;
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    this.ready.add(
+                        CopyOf.pi(child.getNodeName(), child.getNodeValue())
+                    );
+                    break;
+                case Node.ENTITY_NODE:
+                case Node.COMMENT_NODE:
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                        String.format(
+                            "unsupported type %d of node %s",
+                            child.getNodeType(), child.getNodeName()
+                        )
+                    );
+            }
+        }
+    }
+
+    /**
+     * Open node.
+     */
+    private static final class Frame {
+        /**
+         * Children of the node.
+         */
+        private final transient NodeList children;
+        /**
+         * Total number of children.
+         */
+        private final transient int len;
+        /**
+         * Position of the next child to visit.
+         */
+        private transient int pos;
+        /**
+         * Ctor.
+         * @param src The node
+         */
+        Frame(final Node src) {
+            this.children = src.getChildNodes();
+            this.len = this.children.getLength();
+        }
+    }
+
+    /**
+     * Make ADD directive.
+     * @param name Name of the node
+     * @return Directive
+     */
+    private static Directive add(final String name) {
+        try {
+            return new AddDirective(name);
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, ADD(%s)", name
+                ),
+                ex
+            );
+        }
+    }
+
+    /**
+     * Make ATTR directive.
+     * @param name Name of the attribute
+     * @param value Value of it
+     * @return Directive
+     */
+    private static Directive attr(final String name, final String value) {
+        try {
+            return new AttrDirective(name, value);
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, ATTR(%s, %s)",
+                    name, value
+                ),
+                ex
+            );
+        }
+    }
+
+    /**
+     * Make SET directive.
+     * @param text Text to set
+     * @return Directive
+     */
+    private static Directive set(final String text) {
+        try {
+            return new SetDirective(text);
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, SET(%s)", text
+                ),
+                ex
+            );
+        }
+    }
+
+    /**
+     * Make PI directive.
+     * @param target Target of the instruction
+     * @param data Data of it
+     * @return Directive
+     */
+    private static Directive pi(final String target, final String data) {
+        try {
+            return new PiDirective(target, data);
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, PI(%s, %s)",
+                    target, data
+                ),
+                ex
+            );
+        }
+    }
+
+}
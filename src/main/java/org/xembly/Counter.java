@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped counter, which doesn't make concurrent threads fight for
+ * one memory location.
+ *
+ * <p>Every thread adds to its own stripe, picked by its ID, and stripes
+ * are placed a cache line apart from each other. The total is calculated
+ * only when it's requested.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+final class Counter {
+
+    /**
+     * Number of stripes, a power of two.
+     */
+    private static final int STRIPES = Counter.stripes();
+
+    /**
+     * Distance between two stripes, in longs (one cache line).
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * Stripes.
+     */
+    private final transient AtomicLongArray cells =
+        new AtomicLongArray(Counter.STRIPES * Counter.PADDING);
+
+    /**
+     * Add one.
+     */
+    public void increment() {
+        this.add(1L);
+    }
+
+    /**
+     * Add a number.
+     * @param delta The number to add
+     */
+    public void add(final long delta) {
+        final int stripe = (int) Thread.currentThread().getId()
+            & (Counter.STRIPES - 1);
+        this.cells.addAndGet(stripe * Counter.PADDING, delta);
+    }
+
+    /**
+     * Get the total.
+     * @return Sum of all stripes
+     */
+    public long sum() {
+        long total = 0L;
+        for (int idx = 0; idx < Counter.STRIPES; ++idx) {
+            total += this.cells.get(idx * Counter.PADDING);
+        }
+        return total;
+    }
+
+    /**
+     * Reset to zero.
+     */
+    public void reset() {
+        for (int idx = 0; idx < Counter.STRIPES; ++idx) {
+            this.cells.set(idx * Counter.PADDING, 0L);
+        }
+    }
+
+    /**
+     * Calculate the number of stripes for this machine.
+     * @return Power of two, not less than the number of processors
+     */
+    private static int stripes() {
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < cpus) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * DEF directive.
+ *
+ * <p>Defines a named block of directives, which {@link CallDirective}
+ * executes. The definition itself does nothing, it stays in the script
+ * only to be printed back.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "name", "body" })
+final class DefDirective implements Directive {
+
+    /**
+     * Name of the block.
+     */
+    private final transient Arg name;
+
+    /**
+     * The block.
+     */
+    private final transient Block body;
+
+    /**
+     * Public ctor.
+     * @param label Name of the block
+     * @param block The block
+     * @throws XmlContentException If invalid input
+     */
+    DefDirective(final String label, final Block block)
+        throws XmlContentException {
+        this.name = new Arg(label);
+        this.body = block;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DEF %s;%sEND", this.name, this.body);
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack) {
+        return cursor;
+    }
+
+    /**
+     * Name of the block.
+     * @return Name
+     */
+    public String label() {
+        return this.name.raw();
+    }
+
+    /**
+     * Make a directive that calls this block.
+     * @return CALL directive
+     */
+    public Directive call() {
+        return new CallDirective(this.name, this.body);
+    }
+
+}
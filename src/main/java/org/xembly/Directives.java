@@ -29,11 +29,18 @@
  */
 package org.xembly;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import lombok.EqualsAndHashCode;
 import org.antlr.runtime.ANTLRStringStream;
@@ -41,10 +48,7 @@ import org.antlr.runtime.CharStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.TokenStream;
-import org.w3c.dom.Attr;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Collection of {@link Directive}s, instantiable from {@link String}.
@@ -107,6 +111,12 @@ public final class Directives implements Iterable<Directive> {
     private final transient Collection<Directive> all =
         new CopyOnWriteArrayList<Directive>();
 
+    /**
+     * Blocks defined by {@link #def(String, Iterable)}, by names.
+     */
+    private final transient ConcurrentMap<String, DefDirective> macros =
+        new ConcurrentHashMap<String, DefDirective>(0);
+
     /**
      * Public ctor.
      */
@@ -131,6 +141,27 @@ public final class Directives implements Iterable<Directive> {
         this.append(dirs);
     }
 
+    /**
+     * Parse script, or take it from a shared cache, if it was parsed
+     * before.
+     *
+     * <p>Use it when the same scripts are parsed again and again.
+     * Parsed directives are immutable and shared among all callers,
+     * only the returned object is new and mutable. The cache is bounded
+     * by system properties {@code org.xembly.cache.entries} (1024 scripts
+     * by default) and {@code org.xembly.cache.weight} (16M characters of
+     * scripts by default), the least recently used scripts are evicted.
+     *
+     * @param text Xembly script
+     * @return Directives
+     * @throws SyntaxException If syntax is broken
+     * @since 0.23
+     */
+    public static Directives cached(final String text)
+        throws SyntaxException {
+        return new Directives(ScriptCache.SHARED.get(text));
+    }
+
     @Override
     public String toString() {
         final StringBuilder text = new StringBuilder(0);
@@ -176,67 +207,37 @@ public final class Directives implements Iterable<Directive> {
      * );
      * </pre>
      *
+     * <p>Directives are generated lazily, while the returned collection
+     * is iterated, so a large node can be streamed straight into
+     * {@link Xembler} without keeping all its directives in memory.
+     *
      * @param node Node to analyze
      * @return Collection of directives
      * @since 0.13
-     * @checkstyle CyclomaticComplexity (50 lines)
      */
-    @SuppressWarnings("PMD.StdCyclomaticComplexity")
     public static Iterable<Directive> copyOf(final Node node) {
-        final Directives dirs = new Directives();
-        if (node.hasAttributes()) {
-            final NamedNodeMap attrs = node.getAttributes();
-            final int len = attrs.getLength();
-            for (int idx = 0; idx < len; ++idx) {
-                final Attr attr = Attr.class.cast(attrs.item(idx));
-                dirs.attr(attr.getNodeName(), attr.getNodeValue());
-            }
-        }
-        if (node.hasChildNodes()) {
-            final NodeList children = node.getChildNodes();
-            final int len = children.getLength();
-            for (int idx = 0; idx < len; ++idx) {
-                final Node child = children.item(idx);
-                switch (child.getNodeType()) {
-                    case Node.ELEMENT_NODE:
-                        dirs.add(child.getNodeName())
-                            .append(Directives.copyOf(child))
-                            .up();
-                        break;
-                    case Node.ATTRIBUTE_NODE:
-                        dirs.attr(child.getNodeName(), child.getNodeValue());
-                        break;
-                    case Node.TEXT_NODE:
-                    case Node.CDATA_SECTION_NODE:
-                        if (len == 1) {
-                            dirs.set(child.getTextContent());
-                        } else if (!child.getTextContent().trim().isEmpty()) {
-                            throw new IllegalArgumentException(
-                                String.format(
-                                    // @checkstyle LineLength (1 line)
-                                    "TEXT node #%d is not allowed together with other %d nodes in %s",
-                                    idx, len, child.getNodeName()
-                                )
-                            );
-                        }
-                        break;
-                    case Node.PROCESSING_INSTRUCTION_NODE:
-                        dirs.pi(child.getNodeName(), child.getNodeValue());
-                        break;
-                    case Node.ENTITY_NODE:
-                    case Node.COMMENT_NODE:
-                        break;
-                    default:
-                        throw new IllegalArgumentException(
-                            String.format(
-                                "unsupported type %d of node %s",
-                                child.getNodeType(), child.getNodeName()
-                            )
-                        );
-                }
-            }
-        }
-        return dirs;
+        return new CopyOf(node);
+    }
+
+    /**
+     * Copy attributes and children of the node into all current nodes.
+     *
+     * <p>Unlike {@link #copyOf(Node)}, which produces a directive for
+     * every node of the source, this method adds a single directive,
+     * which imports every child of the node together with its subtree
+     * in one native DOM call. Attributes of the node and the list of its
+     * children are taken right away, but the subtrees are referred to,
+     * not copied, and must not be modified until the directives are
+     * applied. Such
+     * directives can't be printed as a script or encoded.
+     *
+     * @param node Node to graft
+     * @return This object
+     * @since 0.23
+     */
+    public Directives graft(final Node node) {
+        this.all.add(new GraftDirective(node));
+        return this;
     }
 
     /**
@@ -248,6 +249,9 @@ public final class Directives implements Iterable<Directive> {
     public Directives append(final Iterable<Directive> dirs) {
         final Collection<Directive> list = new LinkedList<Directive>();
         for (final Directive dir : dirs) {
+            if (dir instanceof DefDirective) {
+                this.define(DefDirective.class.cast(dir));
+            }
             list.add(dir);
         }
         this.all.addAll(list);
@@ -340,7 +344,7 @@ public final class Directives implements Iterable<Directive> {
      * @since 0.5
      */
     public Directives remove() {
-        this.all.add(new RemoveDirective());
+        this.all.add(RemoveDirective.INSTANCE);
         return this;
     }
 
@@ -371,6 +375,70 @@ public final class Directives implements Iterable<Directive> {
         return this;
     }
 
+    /**
+     * Set attribute to a number.
+     *
+     * <p>The number is not validated, since it can't contain anything
+     * illegal in XML. Values of {@code int}, {@code short} and
+     * {@code byte} get here too.
+     *
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives attr(final Object name, final long value) {
+        return this.attribute(name, Arg.of(value));
+    }
+
+    /**
+     * Set attribute to a number.
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives attr(final Object name, final double value) {
+        return this.attribute(name, Arg.of(value));
+    }
+
+    /**
+     * Set attribute to a number.
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives attr(final Object name, final float value) {
+        return this.attribute(name, Arg.of(value));
+    }
+
+    /**
+     * Set attribute to a boolean.
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives attr(final Object name, final boolean value) {
+        return this.attribute(name, Arg.of(value));
+    }
+
+    /**
+     * Set attribute to a character.
+     *
+     * <p>This method exists only to keep characters from being taken
+     * as numbers by {@link #attr(Object, long)}.
+     *
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives attr(final Object name, final char value) {
+        return this.attr(name, (Object) Character.toString(value));
+    }
+
     /**
      * Add processing instruction.
      *
@@ -400,6 +468,40 @@ public final class Directives implements Iterable<Directive> {
         return this;
     }
 
+    /**
+     * Append text to all current nodes.
+     *
+     * <p>Unlike {@link #set(Object)}, which replaces the content, this
+     * method adds the chunk to the end of the text already there, so
+     * a large text can be built chunk by chunk in linear time:
+     *
+     * <pre> Directives dirs = new Directives().add("log");
+     * for (String line : lines) {
+     *   dirs.appendText(line).appendText("\n");
+     * }</pre>
+     *
+     * <p>If a chunk contains illegal XML characters, a runtime exception
+     * will be thrown.
+     *
+     * @param chunk Text to append
+     * @return This object
+     * @since 0.23
+     */
+    public Directives appendText(final CharSequence chunk) {
+        try {
+            this.all.add(new AppendDirective(chunk.toString()));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, APPEND(%s)",
+                    chunk
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
     /**
      * Set text content.
      *
@@ -426,6 +528,69 @@ public final class Directives implements Iterable<Directive> {
         return this;
     }
 
+    /**
+     * Set text content to a number.
+     *
+     * <p>The number is not validated, since it can't contain anything
+     * illegal in XML. Values of {@code int}, {@code short} and
+     * {@code byte} get here too.
+     *
+     * @param num Number to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final long num) {
+        this.all.add(new SetDirective(Arg.of(num)));
+        return this;
+    }
+
+    /**
+     * Set text content to a number.
+     * @param num Number to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final double num) {
+        this.all.add(new SetDirective(Arg.of(num)));
+        return this;
+    }
+
+    /**
+     * Set text content to a number.
+     * @param num Number to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final float num) {
+        this.all.add(new SetDirective(Arg.of(num)));
+        return this;
+    }
+
+    /**
+     * Set text content to a boolean.
+     * @param flag Boolean to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final boolean flag) {
+        this.all.add(new SetDirective(Arg.of(flag)));
+        return this;
+    }
+
+    /**
+     * Set text content to a character.
+     *
+     * <p>This method exists only to keep characters from being taken
+     * as numbers by {@link #set(long)}.
+     *
+     * @param chr Character to set
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final char chr) {
+        return this.set((Object) Character.toString(chr));
+    }
+
     /**
      * Set text content.
      * @param text Text to set
@@ -455,7 +620,7 @@ public final class Directives implements Iterable<Directive> {
      */
     @SuppressWarnings("PMD.ShortMethodName")
     public Directives up() {
-        this.all.add(new UpDirective());
+        this.all.add(UpDirective.INSTANCE);
         return this;
     }
 
@@ -497,7 +662,7 @@ public final class Directives implements Iterable<Directive> {
      * @since 0.16
      */
     public Directives push() {
-        this.all.add(new PushDirective());
+        this.all.add(PushDirective.INSTANCE);
         return this;
     }
 
@@ -507,7 +672,7 @@ public final class Directives implements Iterable<Directive> {
      * @since 0.16
      */
     public Directives pop() {
-        this.all.add(new PopDirective());
+        this.all.add(PopDirective.INSTANCE);
         return this;
     }
 
@@ -537,20 +702,394 @@ public final class Directives implements Iterable<Directive> {
         return this;
     }
 
+    /**
+     * Set text content, reading it from a reader.
+     *
+     * <p>The reader is consumed only when the directive is executed,
+     * chunk by chunk, and only once. It is not closed. If the text
+     * contains illegal XML characters, the execution will fail.
+     *
+     * @param reader Reader to take the text from
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final Reader reader) {
+        this.all.add(new StreamDirective(reader, false));
+        return this;
+    }
+
+    /**
+     * Set text content, taking it from a callable.
+     *
+     * <p>The callable is called every time the directive is executed,
+     * so the text is never materialized before it is needed.
+     *
+     * @param text Callable which provides the text
+     * @return This object
+     * @since 0.23
+     */
+    public Directives set(final Callable<? extends CharSequence> text) {
+        this.all.add(new StreamDirective(text, false));
+        return this;
+    }
+
+    /**
+     * Set CDATA section, reading it from a reader.
+     * @param reader Reader to take the text from
+     * @return This object
+     * @see #set(Reader)
+     * @since 0.23
+     */
+    public Directives cdata(final Reader reader) {
+        this.all.add(new StreamDirective(reader, true));
+        return this;
+    }
+
+    /**
+     * Set CDATA section, taking it from a callable.
+     * @param text Callable which provides the text
+     * @return This object
+     * @see #set(Callable)
+     * @since 0.23
+     */
+    public Directives cdata(final Callable<? extends CharSequence> text) {
+        this.all.add(new StreamDirective(text, true));
+        return this;
+    }
+
+    /**
+     * Set text content to binary data from a stream, encoded in Base64.
+     *
+     * <p>The stream is consumed only when the directive is executed,
+     * chunk by chunk, and only once. It is not closed.
+     *
+     * @param input Stream to take the bytes from
+     * @return This object
+     * @since 0.23
+     */
+    public Directives base64(final InputStream input) {
+        this.all.add(new Base64Directive(input));
+        return this;
+    }
+
+    /**
+     * Set text content to binary data from a buffer, encoded in Base64.
+     *
+     * <p>The bytes between the position and the limit of the buffer
+     * are encoded, the position is not changed.
+     *
+     * @param buffer Buffer to take the bytes from
+     * @return This object
+     * @since 0.23
+     */
+    public Directives base64(final ByteBuffer buffer) {
+        this.all.add(new Base64Directive(buffer));
+        return this;
+    }
+
+    /**
+     * Set text content to binary data from a file, encoded in Base64.
+     *
+     * <p>The file is read every time the directive is executed.
+     *
+     * @param file File to take the bytes from
+     * @return This object
+     * @since 0.23
+     */
+    public Directives base64(final File file) {
+        this.all.add(new Base64Directive(file));
+        return this;
+    }
+
+    /**
+     * Append XML fragment to all current nodes.
+     *
+     * <p>The fragment may have any number of top level nodes, for example
+     * {@code "<title>Dune</title><?pi data?><author/>"}. It is parsed
+     * only once, right here, and then copied under every current node,
+     * which is much faster than adding its nodes one by one. If the
+     * fragment is not well-formed, a runtime exception will be thrown.
+     *
+     * @param xml XML fragment
+     * @return This object
+     * @since 0.23
+     */
+    public Directives xml(final Object xml) {
+        try {
+            this.all.add(new XmlDirective(xml.toString()));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, XML(%s)",
+                    xml
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Execute directives for every item of the collection.
+     *
+     * <p>Every item is bound to the parameter with the given name,
+     * which directives may refer to, for example:
+     *
+     * <pre> new Directives().add("table").each(
+     *   "row", rows,
+     *   new Directives("ADD 'tr'; ADD 'td'; SET $row;")
+     * );</pre>
+     *
+     * <p>If an item is a {@link Map}, its entries are bound too, to
+     * parameters like {@code $row.price}. Every iteration starts at
+     * the current nodes, and the cursor doesn't move. Directives are
+     * not copied for every item, only their parameters are bound.
+     *
+     * <p>The collection is not a parameter of the script. When printed,
+     * it is named after the parameter with an "s" suffix, for example
+     * {@code FOR $row IN $rows}. A NULL item, or an item with illegal
+     * XML characters, makes the execution fail.
+     *
+     * @param name Name of the parameter, without the dollar sign
+     * @param items Collection of items
+     * @param dirs Directives to execute for every item
+     * @return This object
+     * @since 0.23
+     */
+    public Directives each(final String name, final Iterable<?> items,
+        final Iterable<Directive> dirs) {
+        this.all.add(
+            new ForDirective(
+                name, String.format("%ss", name), items, new Block(dirs)
+            )
+        );
+        return this;
+    }
+
+    /**
+     * Define a named block of directives, to be executed by
+     * {@link #call(String)}.
+     *
+     * <p>The definition itself does nothing. Every call executes the same
+     * block, as if its directives were at the place of the call, which
+     * makes scripts with repeating fragments much shorter:
+     *
+     * <pre> new Directives()
+     *   .def("money", new Directives().attr("currency", "USD").set("0"))
+     *   .add("price").call("money").up()
+     *   .add("tax").call("money").up();</pre>
+     *
+     * @param name Name of the block
+     * @param dirs Directives of the block
+     * @return This object
+     * @since 0.23
+     */
+    public Directives def(final String name, final Iterable<Directive> dirs) {
+        final DefDirective def;
+        try {
+            def = new DefDirective(name, new Block(dirs));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, DEF(%s)", name
+                ),
+                ex
+            );
+        }
+        this.define(def);
+        this.all.add(def);
+        return this;
+    }
+
+    /**
+     * Execute a block of directives, defined by
+     * {@link #def(String, Iterable)}.
+     * @param name Name of the block
+     * @return This object
+     * @since 0.23
+     */
+    public Directives call(final String name) {
+        final DefDirective def = this.macros.get(name);
+        if (def == null) {
+            throw new IllegalArgumentException(
+                String.format("block '%s' is not defined", name)
+            );
+        }
+        this.all.add(def.call());
+        return this;
+    }
+
+    /**
+     * Execute directives only on current nodes that match an XPath
+     * expression.
+     * @param xpath XPath expression, evaluated as a boolean
+     * @param dirs Directives to execute on nodes where it's true
+     * @return This object
+     * @since 0.23
+     * @see #when(String, Iterable, Iterable)
+     */
+    public Directives when(final String xpath,
+        final Iterable<Directive> dirs) {
+        return this.when(xpath, dirs, Collections.<Directive>emptyList());
+    }
+
+    /**
+     * Execute directives on current nodes that match an XPath expression
+     * and other directives on the rest of them.
+     *
+     * <p>The expression is evaluated against every current node, as
+     * a boolean, for example:
+     *
+     * <pre> new Directives().xpath("/books/book").when(
+     *   "not(price)",
+     *   new Directives().add("price").set("0"),
+     *   new Directives().xpath("price").attr("checked", "yes")
+     * );</pre>
+     *
+     * <p>The cursor doesn't move, after the directive it is where it was
+     * before.
+     *
+     * @param xpath XPath expression, evaluated as a boolean
+     * @param positive Directives to execute on nodes where it's true
+     * @param negative Directives to execute on nodes where it's false
+     * @return This object
+     * @since 0.23
+     */
+    public Directives when(final String xpath,
+        final Iterable<Directive> positive,
+        final Iterable<Directive> negative) {
+        try {
+            this.all.add(new IfDirective(xpath, positive, negative));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, IF(%s)", xpath
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Move all current nodes to the node found by XPath.
+     *
+     * <p>The expression is evaluated against every current node and must
+     * find exactly one target for it, for example {@code "/archive"} or
+     * {@code "../../done"}. Moved nodes stay current. Nothing is
+     * copied, the node is just attached to another parent.
+     *
+     * @param path XPath of the target
+     * @return This object
+     * @since 0.23
+     */
+    public Directives move(final Object path) {
+        try {
+            this.all.add(new MoveDirective(path.toString()));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, MOVE(%s)",
+                    path
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Append deep copies of all current nodes to the nodes found by XPath.
+     *
+     * <p>The expression is evaluated against every current node. The
+     * copies become current.
+     *
+     * @param path XPath of the targets
+     * @return This object
+     * @since 0.23
+     */
+    public Directives copy(final Object path) {
+        try {
+            this.all.add(new CopyDirective(path.toString()));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, COPY(%s)",
+                    path
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Sort child elements of all current nodes by a text key.
+     * @param key XPath of the key, evaluated against every child
+     * @return This object
+     * @since 0.23
+     * @see #sort(Object, boolean)
+     */
+    public Directives sort(final Object key) {
+        return this.sort(key, false);
+    }
+
+    /**
+     * Sort child elements of all current nodes by a key.
+     *
+     * <p>The key is evaluated against every child element only once,
+     * for example {@code "@price"}, and then the children are relinked
+     * in that order. The sort is stable. Text nodes and other children,
+     * which are not elements, keep their places.
+     *
+     * @param key XPath of the key, evaluated against every child
+     * @param numeric TRUE if keys are numbers, FALSE if they are texts
+     * @return This object
+     * @since 0.23
+     */
+    public Directives sort(final Object key, final boolean numeric) {
+        final String mode;
+        if (numeric) {
+            mode = SortDirective.NUMBER;
+        } else {
+            mode = SortDirective.TEXT;
+        }
+        try {
+            this.all.add(new SortDirective(key.toString(), mode));
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, SORT(%s)",
+                    key
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
     /**
      * Parse script.
      * @param script Script to parse
      * @return Collection of directives
      * @throws SyntaxException If can't parse
      */
-    private static Collection<Directive> parse(final String script)
+    static Collection<Directive> parse(final String script)
         throws SyntaxException {
         final CharStream input = new ANTLRStringStream(script);
         final XemblyLexer lexer = new XemblyLexer(input);
         final TokenStream tokens = new CommonTokenStream(lexer);
         final XemblyParser parser = new XemblyParser(tokens);
+        final Trace trace = Traces.current();
+        final long start = System.nanoTime();
         try {
-            return parser.directives();
+            final Collection<Directive> dirs = parser.directives();
+            if (trace != null) {
+                trace.parsed(
+                    script.length(), dirs.size(), System.nanoTime() - start
+                );
+            }
+            return dirs;
         } catch (final RecognitionException ex) {
             throw new SyntaxException(script, ex);
         } catch (final ParsingException ex) {
@@ -558,4 +1097,40 @@ public final class Directives implements Iterable<Directive> {
         }
     }
 
+    /**
+     * Register a block definition.
+     * @param def The definition
+     */
+    private void define(final DefDirective def) {
+        final DefDirective before = this.macros.putIfAbsent(def.label(), def);
+        if (before != null && !before.equals(def)) {
+            throw new IllegalArgumentException(
+                String.format("block '%s' is already defined", def.label())
+            );
+        }
+    }
+
+    /**
+     * Add ATTR directive with a value which is valid already.
+     * @param name Name of the attribute
+     * @param value Value to set
+     * @return This object
+     */
+    private Directives attribute(final Object name, final Arg value) {
+        try {
+            this.all.add(
+                new AttrDirective(ArgPool.SHARED.get(name.toString()), value)
+            );
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, ATTR(%s, %s)",
+                    name, value.raw()
+                ),
+                ex
+            );
+        }
+        return this;
+    }
+
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * FOR directive.
+ *
+ * <p>Executes its block for every item of a collection, with
+ * the item bound to a parameter. If the item is a {@link Map}, its
+ * entries are bound too, to parameters with names made of the name
+ * of the parameter, a dot and the key, for example {@code $row.price}.
+ * Every iteration starts at the nodes where the loop started, and
+ * the loop doesn't move the cursor.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "var", "name", "items", "body" })
+final class ForDirective implements Directive, Bindable {
+
+    /**
+     * Name of the parameter to bind items to.
+     */
+    private final transient String var;
+
+    /**
+     * Name of the parameter with the collection.
+     */
+    private final transient String name;
+
+    /**
+     * Items of the collection or NULL, if it's not bound yet.
+     */
+    private final transient Object items;
+
+    /**
+     * Block to execute.
+     */
+    private final transient Block body;
+
+    /**
+     * Public ctor.
+     * @param item Name of the parameter to bind items to
+     * @param list Name of the parameter with the collection
+     * @param dirs Directives to execute for every item
+     */
+    ForDirective(final String item, final String list,
+        final Iterable<Directive> dirs) {
+        this(item, list, null, new Block(dirs));
+    }
+
+    /**
+     * Public ctor.
+     * @param item Name of the parameter to bind items to
+     * @param list Name of the parameter with the collection
+     * @param values Items of the collection, NULL if not bound
+     * @param block Block to execute for every item
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    ForDirective(final String item, final String list, final Object values,
+        final Block block) {
+        this.var = item;
+        this.name = list;
+        this.items = values;
+        this.body = block;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "FOR $%s IN $%s;%sEND", this.var, this.name, this.body
+        );
+    }
+
+    @Override
+    public Directive bind(final Map<String, ?> values) {
+        Object list = this.items;
+        if (list == null && values.containsKey(this.name)) {
+            list = values.get(this.name);
+            if (list == null) {
+                throw new IllegalArgumentException(
+                    String.format("parameter $%s can't be NULL", this.name)
+                );
+            }
+        }
+        return new ForDirective(
+            this.var, this.name, list, this.body.bind(this.outer(values))
+        );
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        int idx = 0;
+        for (final Object item : this.iterable()) {
+            final Block block;
+            try {
+                block = this.body.bind(this.values(item));
+            } catch (final IllegalArgumentException ex) {
+                throw new ImpossibleModificationException(
+                    String.format(
+                        "item #%d of $%s can't be bound to $%s: %s",
+                        idx, this.name, this.var, ex.getMessage()
+                    ),
+                    ex
+                );
+            }
+            block.exec(dom, cursor, stack);
+            ++idx;
+        }
+        return cursor;
+    }
+
+    /**
+     * Get the collection.
+     * @return Items
+     * @throws ImpossibleModificationException If it's not iterable
+     */
+    private Iterable<?> iterable() throws ImpossibleModificationException {
+        if (this.items == null) {
+            throw new ImpossibleModificationException(
+                String.format("parameter $%s is not bound", this.name)
+            );
+        }
+        final Iterable<?> list;
+        if (this.items instanceof Iterable) {
+            list = Iterable.class.cast(this.items);
+        } else if (this.items.getClass().isArray()) {
+            final Object[] array = new Object[Array.getLength(this.items)];
+            for (int idx = 0; idx < array.length; ++idx) {
+                array[idx] = Array.get(this.items, idx);
+            }
+            list = Arrays.asList(array);
+        } else {
+            throw new ImpossibleModificationException(
+                String.format(
+                    "parameter $%s is neither Iterable nor array: %s",
+                    this.name, this.items.getClass().getName()
+                )
+            );
+        }
+        return list;
+    }
+
+    /**
+     * Values of parameters, except the ones this loop binds itself.
+     * @param values All values
+     * @return Values to bind in the block
+     */
+    private Map<String, ?> outer(final Map<String, ?> values) {
+        final String prefix = String.format("%s.", this.var);
+        Map<String, ?> outer = values;
+        for (final String key : values.keySet()) {
+            if (key.equals(this.var) || key.startsWith(prefix)) {
+                final Map<String, Object> copy =
+                    new HashMap<String, Object>(values);
+                copy.keySet().remove(this.var);
+                for (final String other : values.keySet()) {
+                    if (other.startsWith(prefix)) {
+                        copy.remove(other);
+                    }
+                }
+                outer = copy;
+                break;
+            }
+        }
+        return outer;
+    }
+
+    /**
+     * Values of parameters for one item.
+     * @param item The item
+     * @return Values by names
+     */
+    private Map<String, Object> values(final Object item) {
+        final Map<String, Object> values = new HashMap<String, Object>(2);
+        values.put(this.var, item);
+        if (item instanceof Map) {
+            final Map<?, ?> map = Map.class.cast(item);
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                values.put(
+                    String.format("%s.%s", this.var, entry.getKey()),
+                    entry.getValue()
+                );
+            }
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * GRAFT directive.
+ *
+ * <p>Copies attributes and child nodes of a source node into every
+ * current node, importing every child together with its subtree
+ * by one call to {@link Document#importNode(Node, boolean)}, instead of
+ * replaying the tree node by node, as {@link Directives#copyOf(Node)}
+ * does. Comments and mixed content inside the subtree are copied as
+ * they are. The directive has no textual form and can't be encoded,
+ * since it refers to a live node.
+ *
+ * <p>Attributes of the source node and the list of its children are
+ * captured when the directive is made, while subtrees of the children
+ * are read when it is applied, so they must not be modified until then.
+ *
+ * <p>The class is thread-safe, as long as the source node is not
+ * modified.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "source")
+final class GraftDirective implements Directive {
+
+    /**
+     * Source node.
+     */
+    private final transient Node source;
+
+    /**
+     * Names and values of the source attributes, one after another.
+     */
+    private final transient String[] attrs;
+
+    /**
+     * Children of the source node to import.
+     */
+    private final transient Node[] children;
+
+    /**
+     * Public ctor.
+     * @param node Source node
+     * @checkstyle CyclomaticComplexity (40 lines)
+     */
+    @SuppressWarnings("PMD.StdCyclomaticComplexity")
+    GraftDirective(final Node node) {
+        this.source = node;
+        this.attrs = GraftDirective.attributes(node);
+        final NodeList list = node.getChildNodes();
+        final int len = list.getLength();
+        final Collection<Node> kids = new ArrayList<Node>(len);
+        for (int idx = 0; idx < len; ++idx) {
+            final Node child = list.item(idx);
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                case Node.COMMENT_NODE:
+                    kids.add(child);
+                    break;
+                case Node.ENTITY_NODE:
+                case Node.DOCUMENT_TYPE_NODE:
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                        String.format(
+                            "unsupported type %d of node %s",
+                            child.getNodeType(), child.getNodeName()
+                        )
+                    );
+            }
+        }
+        this.children = kids.toArray(new Node[kids.size()]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GRAFT \"%s\"", this.source.getNodeName());
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack) {
+        final Document doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = Document.class.cast(dom);
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        for (final Node node : cursor) {
+            for (int idx = 0; idx < this.attrs.length; idx += 2) {
+                Element.class.cast(node).setAttribute(
+                    this.attrs[idx], this.attrs[idx + 1]
+                );
+            }
+            for (final Node child : this.children) {
+                node.appendChild(doc.importNode(child, true));
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Take names and values of all attributes of the node.
+     * @param node The node
+     * @return Names and values, one after another
+     */
+    private static String[] attributes(final Node node) {
+        final String[] pairs;
+        if (node.hasAttributes()) {
+            final NamedNodeMap map = node.getAttributes();
+            final int len = map.getLength();
+            pairs = new String[len << 1];
+            for (int idx = 0; idx < len; ++idx) {
+                final Attr attr = Attr.class.cast(map.item(idx));
+                pairs[idx << 1] = attr.getNodeName();
+                pairs[(idx << 1) + 1] = attr.getNodeValue();
+            }
+        } else {
+            pairs = new String[0];
+        }
+        return pairs;
+    }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * IF directive.
+ *
+ * <p>Evaluates an XPath expression as a boolean, against every current
+ * node, and executes the first block on the nodes where it's true and
+ * the second one on all others. When there are no current nodes,
+ * the expression is evaluated against the document and one of the
+ * blocks is executed with the cursor as is. A node set is true if it's
+ * not empty, as in XPath {@code boolean()} function. Blocks don't move
+ * the cursor, after the directive it is where it was before.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "expr", "yes", "no" })
+final class IfDirective implements Directive, Bindable {
+
+    /**
+     * XPath factory.
+     */
+    private static final XPathFactory FACTORY = XPathFactory.newInstance();
+
+    /**
+     * XPath expression.
+     */
+    private final transient Arg expr;
+
+    /**
+     * Block to execute where the expression is true.
+     */
+    private final transient Block yes;
+
+    /**
+     * Block to execute where the expression is false.
+     */
+    private final transient Block no;
+
+    /**
+     * Public ctor.
+     * @param path XPath expression
+     * @param positive Directives to execute where it is true
+     * @param negative Directives to execute where it is false
+     * @throws XmlContentException If invalid input
+     */
+    IfDirective(final String path, final Iterable<Directive> positive,
+        final Iterable<Directive> negative) throws XmlContentException {
+        this(new Arg(path), new Block(positive), new Block(negative));
+    }
+
+    /**
+     * Private ctor.
+     * @param path XPath expression
+     * @param positive Block to execute where it is true
+     * @param negative Block to execute where it is false
+     */
+    private IfDirective(final Arg path, final Block positive,
+        final Block negative) {
+        this.expr = path;
+        this.yes = positive;
+        this.no = negative;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder(0)
+            .append("IF ").append(this.expr).append(';').append(this.yes);
+        if (this.no.iterator().hasNext()) {
+            text.append("ELSE;").append(this.no);
+        }
+        return text.append("END").toString();
+    }
+
+    @Override
+    public Directive bind(final Map<String, ?> values) {
+        return new IfDirective(
+            this.expr, this.yes.bind(values), this.no.bind(values)
+        );
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final XPathExpression xpath;
+        try {
+            xpath = IfDirective.FACTORY.newXPath().compile(this.expr.raw());
+        } catch (final XPathExpressionException ex) {
+            throw new ImpossibleModificationException(
+                String.format("invalid XPath expr '%s'", this.expr.raw()), ex
+            );
+        }
+        if (cursor.isEmpty()) {
+            final Node root;
+            if (dom.getOwnerDocument() == null) {
+                root = dom;
+            } else {
+                root = dom.getOwnerDocument().getDocumentElement();
+            }
+            if (this.test(xpath, root)) {
+                this.yes.exec(dom, cursor, stack);
+            } else {
+                this.no.exec(dom, cursor, stack);
+            }
+        } else {
+            final Collection<Node> positive = new ArrayList<Node>(0);
+            final Collection<Node> negative = new ArrayList<Node>(0);
+            for (final Node node : cursor) {
+                if (this.test(xpath, node)) {
+                    positive.add(node);
+                } else {
+                    negative.add(node);
+                }
+            }
+            if (!positive.isEmpty()) {
+                this.yes.exec(dom, new DomCursor(positive), stack);
+            }
+            if (!negative.isEmpty()) {
+                this.no.exec(dom, new DomCursor(negative), stack);
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Evaluate the expression against the node.
+     * @param xpath Compiled expression
+     * @param node The node
+     * @return TRUE if it's true
+     * @throws ImpossibleModificationException If fails
+     */
+    private boolean test(final XPathExpression xpath, final Node node)
+        throws ImpossibleModificationException {
+        try {
+            return Boolean.class.cast(
+                xpath.evaluate(node, XPathConstants.BOOLEAN)
+            );
+        } catch (final XPathExpressionException ex) {
+            throw new ImpossibleModificationException(
+                String.format("failed to evaluate '%s'", this.expr.raw()), ex
+            );
+        }
+    }
+
+}
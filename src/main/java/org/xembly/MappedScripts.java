@@ -0,0 +1,393 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Scripts compiled to {@link Bytecode} and cached in a memory-mapped file.
+ *
+ * <p>When a script is requested for the first time, it is parsed,
+ * encoded and appended to the file, together with the SHA-256 hash of
+ * its text. When the same file is opened again, even by another JVM,
+ * the script is decoded right from the mapped memory, without parsing:
+ *
+ * <pre> MappedScripts scripts = new MappedScripts(
+ *   new File("/var/cache/xembly.bin")
+ * );
+ * new Xembler(scripts.get("ADD 'hello';")).xml();</pre>
+ *
+ * <p>The file starts with a header, which contains versions of its
+ * own layout and of {@link Bytecode}. If any of them doesn't match,
+ * the file is emptied and compiled scripts are stored again. Every entry
+ * has a checksum, the file is truncated at the first broken one.
+ *
+ * <p>The class is thread-safe. Many JVMs may share one file, entries
+ * are appended under a file lock.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class MappedScripts implements Closeable {
+
+    /**
+     * Version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Magic number of the header, "XMBC".
+     */
+    private static final int MAGIC = 0x584D4243;
+
+    /**
+     * Size of the header: magic, layout version, bytecode version.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final int HEADER = 12;
+
+    /**
+     * Size of the hash.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final int HASH = 32;
+
+    /**
+     * Size of the entry head: hash, length and checksum.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final int HEAD = MappedScripts.HASH + 8;
+
+    /**
+     * Size of the chunk to calculate checksums with.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final int CHUNK = 8192;
+
+    /**
+     * Charset of scripts.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The file.
+     */
+    private final transient RandomAccessFile file;
+
+    /**
+     * Compiled scripts, by hashes of their texts.
+     */
+    private final transient Map<ByteBuffer, ByteBuffer> index =
+        new ConcurrentHashMap<ByteBuffer, ByteBuffer>(0);
+
+    /**
+     * Public ctor.
+     * @param path The file, which will be created if absent
+     * @throws IOException If fails to read it
+     */
+    public MappedScripts(final File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        final FileChannel channel = this.file.getChannel();
+        final FileLock lock = channel.lock();
+        try {
+            if (!MappedScripts.valid(channel)) {
+                channel.truncate(0L);
+                final ByteBuffer header = ByteBuffer.allocate(
+                    MappedScripts.HEADER
+                );
+                header.putInt(MappedScripts.MAGIC)
+                    .putInt(MappedScripts.VERSION)
+                    .putInt(Bytecode.VERSION)
+                    .flip();
+                channel.write(header, 0L);
+            }
+            final long end = MappedScripts.scan(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            this.load(channel.map(FileChannel.MapMode.READ_ONLY, 0L, end));
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Get compiled script, parsing it only if it's not in the file yet.
+     *
+     * <p>A script with parameters or blocks, like {@code FOR} or
+     * {@code IF}, can't be encoded. It is parsed on every call and
+     * is never stored in the file.
+     *
+     * @param script Xembly script
+     * @return Directives
+     * @throws SyntaxException If syntax is broken
+     */
+    public Iterable<Directive> get(final String script)
+        throws SyntaxException {
+        final ByteBuffer key = MappedScripts.hash(script);
+        final ByteBuffer code = this.index.get(key);
+        final Iterable<Directive> dirs;
+        if (code == null) {
+            final Directives parsed = new Directives(script);
+            if (MappedScripts.encodable(parsed)) {
+                dirs = new Bytecode(
+                    this.append(key, Bytecode.encode(parsed))
+                );
+            } else {
+                dirs = parsed;
+            }
+        } else {
+            dirs = new Bytecode(code);
+        }
+        return dirs;
+    }
+
+    /**
+     * Number of compiled scripts available.
+     * @return Total
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * Append compiled script to the file, unless another thread has
+     * already done it.
+     * @param key Hash of the script
+     * @param bytes Compiled script
+     * @return Compiled script, which is in the file now
+     */
+    private ByteBuffer append(final ByteBuffer key, final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final ByteBuffer entry = ByteBuffer.allocate(
+            MappedScripts.HEAD + bytes.length
+        );
+        entry.put(key.duplicate())
+            .putInt(bytes.length)
+            .putInt((int) crc.getValue())
+            .put(bytes)
+            .flip();
+        try {
+            synchronized (this.file) {
+                ByteBuffer code = this.index.get(key);
+                if (code == null) {
+                    final FileChannel channel = this.file.getChannel();
+                    final FileLock lock = channel.lock();
+                    try {
+                        long pos = channel.size();
+                        while (entry.hasRemaining()) {
+                            pos += channel.write(entry, pos);
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                    code = ByteBuffer.wrap(bytes);
+                    this.index.put(key, code);
+                }
+                return code;
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(
+                "failed to append compiled script to the file", ex
+            );
+        }
+    }
+
+    /**
+     * Load all entries from the mapped file, which is valid already.
+     * @param map Mapped file
+     */
+    private void load(final MappedByteBuffer map) {
+        int pos = MappedScripts.HEADER;
+        while (pos < map.limit()) {
+            map.position(pos);
+            final byte[] hash = new byte[MappedScripts.HASH];
+            map.get(hash);
+            final int len = map.getInt();
+            map.getInt();
+            final ByteBuffer code = map.slice();
+            code.limit(len);
+            this.index.put(ByteBuffer.wrap(hash), code.asReadOnlyBuffer());
+            pos += MappedScripts.HEAD + len;
+        }
+    }
+
+    /**
+     * Find the end of the last valid entry in the file.
+     *
+     * <p>The file is read, not mapped, because it may have to be
+     * truncated afterwards, which is not allowed while it's mapped.
+     *
+     * @param channel Channel of the file
+     * @return Position after the last valid entry
+     * @throws IOException If fails
+     */
+    private static long scan(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer head = ByteBuffer.allocate(MappedScripts.HEAD);
+        final ByteBuffer chunk = ByteBuffer.allocate(MappedScripts.CHUNK);
+        long pos = MappedScripts.HEADER;
+        boolean valid = true;
+        while (valid && size - pos >= MappedScripts.HEAD) {
+            head.clear();
+            MappedScripts.read(channel, head, pos);
+            head.position(MappedScripts.HASH);
+            final int len = head.getInt();
+            final int sum = head.getInt();
+            valid = len >= 0 && len <= size - pos - MappedScripts.HEAD
+                && MappedScripts.crc(
+                    channel, pos + MappedScripts.HEAD, len, chunk
+                ) == sum;
+            if (valid) {
+                pos += MappedScripts.HEAD + len;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Calculate checksum of a part of the file.
+     * @param channel Channel of the file
+     * @param start Position of the part
+     * @param len Length of the part
+     * @param chunk Buffer to read with
+     * @return Checksum
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (3 lines)
+     */
+    private static int crc(final FileChannel channel, final long start,
+        final int len, final ByteBuffer chunk) throws IOException {
+        final CRC32 crc = new CRC32();
+        int done = 0;
+        while (done < len) {
+            chunk.clear();
+            chunk.limit(Math.min(chunk.capacity(), len - done));
+            MappedScripts.read(channel, chunk, start + done);
+            crc.update(chunk.array(), 0, chunk.limit());
+            done += chunk.limit();
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Read from the file until the buffer is full.
+     * @param channel Channel of the file
+     * @param buf Buffer to fill
+     * @param start Position in the file to read from
+     * @throws IOException If fails or the file is too short
+     */
+    private static void read(final FileChannel channel, final ByteBuffer buf,
+        final long start) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, start + buf.position()) < 0) {
+                throw new EOFException(
+                    String.format("unexpected end of file at %d", start)
+                );
+            }
+        }
+    }
+
+    /**
+     * Check the header of the file.
+     * @param channel Channel of the file
+     * @return TRUE if the file can be used as is
+     * @throws IOException If fails
+     */
+    private static boolean valid(final FileChannel channel)
+        throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(MappedScripts.HEADER);
+        boolean valid = false;
+        if (channel.size() >= MappedScripts.HEADER) {
+            while (header.hasRemaining()) {
+                channel.read(header, header.position());
+            }
+            header.flip();
+            valid = header.getInt() == MappedScripts.MAGIC
+                && header.getInt() == MappedScripts.VERSION
+                && header.getInt() == Bytecode.VERSION;
+        }
+        return valid;
+    }
+
+    /**
+     * Can all these directives be encoded?
+     * @param dirs Directives
+     * @return TRUE if all of them are {@link Encodable}
+     */
+    private static boolean encodable(final Iterable<Directive> dirs) {
+        boolean encodable = true;
+        for (final Directive dir : dirs) {
+            if (!(dir instanceof Encodable)) {
+                encodable = false;
+                break;
+            }
+        }
+        return encodable;
+    }
+
+    /**
+     * Calculate hash of the script.
+     * @param script Script
+     * @return SHA-256 hash
+     */
+    private static ByteBuffer hash(final String script) {
+        try {
+            return ByteBuffer.wrap(
+                MessageDigest.getInstance("SHA-256").digest(
+                    script.getBytes(MappedScripts.UTF_8)
+                )
+            );
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * MOVE directive.
+ *
+ * <p>Moves every current node to the node found by the XPath expression,
+ * evaluated against the node being moved, and makes moved nodes
+ * current. There must be exactly one such target for every node. All
+ * targets are found before any node is moved. The node is moved, not
+ * copied, so it takes no time, no matter how big it is.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "expr")
+final class MoveDirective implements Directive, Encodable {
+
+    /**
+     * XPath of the target.
+     */
+    private final transient Arg expr;
+
+    /**
+     * Directive to find targets with.
+     */
+    private final transient Directive locate;
+
+    /**
+     * Public ctor.
+     * @param path XPath of the target
+     * @throws XmlContentException If invalid input
+     */
+    MoveDirective(final String path) throws XmlContentException {
+        this(ArgPool.SHARED.get(path));
+    }
+
+    /**
+     * Public ctor.
+     * @param path XPath of the target
+     */
+    MoveDirective(final Arg path) {
+        this.expr = path;
+        this.locate = new XpathDirective(path);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MOVE %s", this.expr);
+    }
+
+    @Override
+    public Opcode opcode() {
+        return Opcode.MOVE;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.expr};
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final Node[] targets = new Node[cursor.size()];
+        int idx = 0;
+        for (final Node node : cursor) {
+            final Directive.Cursor found = this.locate.exec(
+                dom, new DomCursor(Collections.singletonList(node)), stack
+            );
+            if (found.size() != 1) {
+                throw new ImpossibleModificationException(
+                    String.format(
+                        "exactly one target expected for <%s>, %d found",
+                        node.getNodeName(), found.size()
+                    )
+                );
+            }
+            targets[idx] = found.iterator().next();
+            ++idx;
+        }
+        final Collection<Node> moved = new ArrayList<Node>(cursor.size());
+        idx = 0;
+        for (final Node node : cursor) {
+            targets[idx].appendChild(node);
+            moved.add(node);
+            ++idx;
+        }
+        return new DomCursor(moved);
+    }
+
+}
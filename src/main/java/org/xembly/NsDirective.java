@@ -42,7 +42,7 @@ import org.w3c.dom.Node;
  * @since 0.19.3
  */
 @EqualsAndHashCode(of = { "namespace" })
-final class NsDirective implements Directive {
+final class NsDirective implements Directive, Encodable {
     /**
      * Namespace, which should be added to a node.
      */
@@ -64,6 +64,16 @@ final class NsDirective implements Directive {
         );
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.NS;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.namespace};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom, final Directive.Cursor cursor,
         final Directive.Stack stack) {
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+/**
+ * Opcodes of Xembly directives.
+ *
+ * <p>Their ordinals are written to {@link Bytecode}, that's why new
+ * opcodes must only be added to the end of the list.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+enum Opcode {
+
+    /**
+     * XPATH.
+     */
+    XPATH(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new XpathDirective(args[0]);
+        }
+    },
+
+    /**
+     * SET.
+     */
+    SET(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new SetDirective(args[0]);
+        }
+    },
+
+    /**
+     * XSET.
+     */
+    XSET(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new XsetDirective(args[0]);
+        }
+    },
+
+    /**
+     * ATTR.
+     */
+    ATTR(2) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new AttrDirective(args[0], args[1]);
+        }
+    },
+
+    /**
+     * ADD.
+     */
+    ADD(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new AddDirective(args[0]);
+        }
+    },
+
+    /**
+     * ADDIF.
+     */
+    ADDIF(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new AddIfDirective(args[0]);
+        }
+    },
+
+    /**
+     * REMOVE.
+     */
+    REMOVE(0) {
+        @Override
+        public Directive create(final Arg... args) {
+            return RemoveDirective.INSTANCE;
+        }
+    },
+
+    /**
+     * STRICT.
+     */
+    STRICT(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            try {
+                return new StrictDirective(Integer.parseInt(args[0].raw()));
+            } catch (final NumberFormatException ex) {
+                throw new IllegalArgumentException(
+                    String.format("STRICT needs a number: %s", args[0]), ex
+                );
+            }
+        }
+    },
+
+    /**
+     * UP.
+     */
+    UP(0) {
+        @Override
+        public Directive create(final Arg... args) {
+            return UpDirective.INSTANCE;
+        }
+    },
+
+    /**
+     * PI.
+     */
+    PI(2) {
+        @Override
+        public Directive create(final Arg... args) {
+            try {
+                return new PiDirective(args[0].raw(), args[1].raw());
+            } catch (final XmlContentException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+        }
+    },
+
+    /**
+     * PUSH.
+     */
+    PUSH(0) {
+        @Override
+        public Directive create(final Arg... args) {
+            return PushDirective.INSTANCE;
+        }
+    },
+
+    /**
+     * POP.
+     */
+    POP(0) {
+        @Override
+        public Directive create(final Arg... args) {
+            return PopDirective.INSTANCE;
+        }
+    },
+
+    /**
+     * CDATA.
+     */
+    CDATA(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new CdataDirective(args[0]);
+        }
+    },
+
+    /**
+     * NS.
+     */
+    NS(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new NsDirective(args[0]);
+        }
+    },
+
+    /**
+     * XML.
+     */
+    XML(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            try {
+                return new XmlDirective(args[0]);
+            } catch (final XmlContentException ex) {
+                throw new IllegalArgumentException(
+                    String.format("invalid XML fragment %s", args[0]),
+                    ex
+                );
+            }
+        }
+    },
+
+    /**
+     * MOVE.
+     */
+    MOVE(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new MoveDirective(args[0]);
+        }
+    },
+
+    /**
+     * COPY.
+     */
+    COPY(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new CopyDirective(args[0]);
+        }
+    },
+
+    /**
+     * SORT.
+     */
+    SORT(2) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new SortDirective(args[0], args[1]);
+        }
+    },
+
+    /**
+     * APPEND.
+     */
+    APPEND(1) {
+        @Override
+        public Directive create(final Arg... args) {
+            return new AppendDirective(args[0]);
+        }
+    };
+
+    /**
+     * Number of arguments.
+     */
+    private final transient int args;
+
+    /**
+     * Ctor.
+     * @param total Number of arguments
+     */
+    Opcode(final int total) {
+        this.args = total;
+    }
+
+    /**
+     * Number of arguments the directive needs.
+     * @return Total
+     */
+    public int arity() {
+        return this.args;
+    }
+
+    /**
+     * Make a directive.
+     * @param args Arguments, exactly {@link #arity()} of them
+     * @return Directive
+     */
+    public abstract Directive create(Arg... args);
+
+}
@@ -44,7 +44,7 @@ import org.w3c.dom.Node;
  * @since 0.9
  */
 @EqualsAndHashCode(of = { "target", "data" })
-final class PiDirective implements Directive {
+final class PiDirective implements Directive, Encodable {
 
     /**
      * Target name.
@@ -73,6 +73,16 @@ final class PiDirective implements Directive {
         return String.format("PI %s, %s", this.target, this.data);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.PI;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.target, this.data};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Prepared script, with parameters bound to values right before
+ * it is applied.
+ *
+ * <p>Any argument of a directive may be replaced by a parameter, which
+ * is a name that starts with a dollar sign, for example:
+ *
+ * <pre> Prepared script = new Prepared(
+ *   "XPATH '/users'; ADD 'user'; ATTR 'id', $id; SET $name;"
+ * );
+ * Map&lt;String, Object&gt; values = new HashMap&lt;String, Object&gt;();
+ * values.put("id", 42);
+ * values.put("name", "Jeff");
+ * new Xembler(script.bind(values)).apply(dom);</pre>
+ *
+ * <p>The script is parsed only once, just like a
+ * {@link java.sql.PreparedStatement}. Only bound values are validated
+ * by {@link #bind(Map)}, which throws a runtime exception if some of
+ * them are not valid XML. A directive with a parameter that is not
+ * bound fails when it is executed.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "dirs")
+public final class Prepared {
+
+    /**
+     * Directives.
+     */
+    private final transient Directive[] dirs;
+
+    /**
+     * Positions of directives with parameters.
+     */
+    private final transient int[] slots;
+
+    /**
+     * Public ctor.
+     * @param script Xembly script
+     * @throws SyntaxException If syntax is broken
+     */
+    public Prepared(final String script) throws SyntaxException {
+        this(Directives.parse(script));
+    }
+
+    /**
+     * Public ctor.
+     * @param list Directives
+     */
+    public Prepared(final Iterable<Directive> list) {
+        final Collection<Directive> all = new ArrayList<Directive>(0);
+        for (final Directive dir : list) {
+            all.add(dir);
+        }
+        this.dirs = all.toArray(new Directive[all.size()]);
+        int total = 0;
+        for (final Directive dir : this.dirs) {
+            if (dir instanceof Bindable) {
+                ++total;
+            }
+        }
+        this.slots = new int[total];
+        int pos = 0;
+        for (int idx = 0; idx < this.dirs.length; ++idx) {
+            if (this.dirs[idx] instanceof Bindable) {
+                this.slots[pos] = idx;
+                ++pos;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new Directives(Arrays.asList(this.dirs)).toString();
+    }
+
+    /**
+     * Bind parameters to values.
+     * @param values Values of parameters, by their names
+     * @return Directives, ready to be applied
+     */
+    public Iterable<Directive> bind(final Map<String, ?> values) {
+        final Directive[] bound = Arrays.copyOf(this.dirs, this.dirs.length);
+        for (final int idx : this.slots) {
+            bound[idx] = Bindable.class.cast(bound[idx]).bind(values);
+        }
+        return Collections.unmodifiableList(Arrays.asList(bound));
+    }
+
+}
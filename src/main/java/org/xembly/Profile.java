@@ -0,0 +1,346 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+/**
+ * Profile of directives, collected while applying them.
+ *
+ * <p>For every directive, by its position in the script, it records
+ * how many times it was executed, how much time it took, how many
+ * nodes were in the cursor before and after it, and how many nodes
+ * it inserted into the document or removed from it. For example:
+ *
+ * <pre> Profile profile = new Xembler(dirs).profile(dom);
+ * System.out.println(profile);</pre>
+ *
+ * <p>{@link #toString()} renders the script with these numbers next to
+ * every line, the most expensive directives first. Numbers are
+ * accumulated, if {@link #apply(Node)} is called many times.
+ *
+ * <p>Inserted and removed nodes are counted with DOM mutation events,
+ * if the DOM implementation supports them, otherwise they are zeros.
+ * Profiling is much slower than {@link Xembler#apply(Node)}, don't
+ * use it in production.
+ *
+ * <p>The class is mutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class Profile {
+
+    /**
+     * Nanoseconds in one millisecond.
+     */
+    private static final double MILLI = 1.0e6;
+
+    /**
+     * Directives.
+     */
+    private final transient Directive[] dirs;
+
+    /**
+     * Executions, per position.
+     */
+    private final transient long[] counts;
+
+    /**
+     * Time spent, per position.
+     */
+    private final transient long[] nanos;
+
+    /**
+     * Cursor size before execution, per position.
+     */
+    private final transient long[] before;
+
+    /**
+     * Cursor size after execution, per position.
+     */
+    private final transient long[] after;
+
+    /**
+     * Nodes inserted, per position.
+     */
+    private final transient long[] created;
+
+    /**
+     * Nodes removed, per position.
+     */
+    private final transient long[] removed;
+
+    /**
+     * Public ctor.
+     * @param directives Directives to profile
+     */
+    public Profile(final Iterable<Directive> directives) {
+        final List<Directive> list = new ArrayList<Directive>(0);
+        for (final Directive dir : directives) {
+            list.add(dir);
+        }
+        this.dirs = list.toArray(new Directive[list.size()]);
+        this.counts = new long[this.dirs.length];
+        this.nanos = new long[this.dirs.length];
+        this.before = new long[this.dirs.length];
+        this.after = new long[this.dirs.length];
+        this.created = new long[this.dirs.length];
+        this.removed = new long[this.dirs.length];
+    }
+
+    /**
+     * Apply all directives to the document/node and collect the profile.
+     * @param dom DOM document/node
+     * @return The same document/node
+     * @throws ImpossibleModificationException If can't modify
+     */
+    public Node apply(final Node dom) throws ImpossibleModificationException {
+        synchronized (this.dirs) {
+            final Profile.Mutations mutations = new Profile.Mutations();
+            final EventTarget target = Profile.target(dom);
+            if (target != null) {
+                target.addEventListener("DOMNodeInserted", mutations, true);
+                target.addEventListener("DOMNodeRemoved", mutations, true);
+            }
+            try {
+                this.run(dom, mutations);
+            } finally {
+                if (target != null) {
+                    target.removeEventListener(
+                        "DOMNodeInserted", mutations, true
+                    );
+                    target.removeEventListener(
+                        "DOMNodeRemoved", mutations, true
+                    );
+                }
+            }
+        }
+        return dom;
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this.dirs) {
+            long total = 0L;
+            for (final long time : this.nanos) {
+                total += time;
+            }
+            final Integer[] order = new Integer[this.dirs.length];
+            for (int idx = 0; idx < order.length; ++idx) {
+                order[idx] = idx;
+            }
+            Arrays.sort(order, new Profile.ByCost(this.nanos));
+            final StringBuilder text = new StringBuilder(0).append(
+                String.format(
+                    "%10s %10s %6s %10s %10s %8s %8s  %s%n",
+                    "count", "ms", "%", "in", "out", "+nodes", "-nodes",
+                    "directive"
+                )
+            );
+            for (final Integer idx : order) {
+                text.append(
+                    String.format(
+                        Locale.ENGLISH,
+                        "%10d %10.3f %6.2f %10d %10d %8d %8d  %d: %s;%n",
+                        this.counts[idx], this.nanos[idx] / Profile.MILLI,
+                        Profile.percent(this.nanos[idx], total),
+                        this.before[idx], this.after[idx],
+                        this.created[idx], this.removed[idx],
+                        idx, this.dirs[idx]
+                    )
+                );
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Execute all directives, one by one.
+     * @param dom DOM document/node
+     * @param mutations Listener of DOM mutations
+     * @throws ImpossibleModificationException If can't modify
+     */
+    private void run(final Node dom, final Profile.Mutations mutations)
+        throws ImpossibleModificationException {
+        Directive.Cursor cursor = new DomCursor(
+            Collections.singletonList(dom)
+        );
+        final Directive.Stack stack = new DomStack();
+        for (int idx = 0; idx < this.dirs.length; ++idx) {
+            final Directive dir = this.dirs[idx];
+            final int size = cursor.size();
+            mutations.reset();
+            final long start = System.nanoTime();
+            try {
+                cursor = dir.exec(dom, cursor, stack);
+            } catch (final ImpossibleModificationException ex) {
+                throw new ImpossibleModificationException(
+                    String.format("directive #%d: %s", idx + 1, dir),
+                    ex
+                );
+            } catch (final DOMException ex) {
+                throw new ImpossibleModificationException(
+                    String.format("DOM exception at dir #%d: %s", idx + 1, dir),
+                    ex
+                );
+            }
+            this.nanos[idx] += System.nanoTime() - start;
+            ++this.counts[idx];
+            this.before[idx] += size;
+            this.after[idx] += cursor.size();
+            this.created[idx] += mutations.inserted();
+            this.removed[idx] += mutations.removed();
+        }
+    }
+
+    /**
+     * Find event target of the document.
+     * @param dom DOM document/node
+     * @return Target or NULL if mutation events are not supported
+     */
+    private static EventTarget target(final Node dom) {
+        final Node doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = dom;
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        final EventTarget target;
+        if (doc instanceof EventTarget) {
+            target = EventTarget.class.cast(doc);
+        } else {
+            target = null;
+        }
+        return target;
+    }
+
+    /**
+     * Calculate percentage.
+     * @param part Part
+     * @param total Total
+     * @return Percent
+     */
+    private static double percent(final long part, final long total) {
+        final double pct;
+        if (total > 0L) {
+            // @checkstyle MagicNumber (1 line)
+            pct = part * 100.0d / total;
+        } else {
+            pct = 0.0d;
+        }
+        return pct;
+    }
+
+    /**
+     * Listener of DOM mutations.
+     */
+    private static final class Mutations implements EventListener {
+        /**
+         * Nodes inserted.
+         */
+        private transient int plus;
+        /**
+         * Nodes removed.
+         */
+        private transient int minus;
+        @Override
+        public void handleEvent(final Event event) {
+            if ("DOMNodeInserted".equals(event.getType())) {
+                ++this.plus;
+            } else {
+                ++this.minus;
+            }
+        }
+        /**
+         * Start counting from zero.
+         */
+        public void reset() {
+            this.plus = 0;
+            this.minus = 0;
+        }
+        /**
+         * Nodes inserted.
+         * @return Total
+         */
+        public int inserted() {
+            return this.plus;
+        }
+        /**
+         * Nodes removed.
+         * @return Total
+         */
+        public int removed() {
+            return this.minus;
+        }
+    }
+
+    /**
+     * Comparator of positions, by their cost, the most expensive first.
+     */
+    private static final class ByCost implements Comparator<Integer> {
+        /**
+         * Time spent, per position.
+         */
+        private final transient long[] nanos;
+        /**
+         * Ctor.
+         * @param times Time spent, per position
+         */
+        ByCost(final long... times) {
+            this.nanos = times;
+        }
+        @Override
+        public int compare(final Integer left, final Integer right) {
+            final long diff = this.nanos[right] - this.nanos[left];
+            final int result;
+            if (diff > 0L) {
+                result = 1;
+            } else if (diff < 0L) {
+                result = -1;
+            } else {
+                result = left.compareTo(right);
+            }
+            return result;
+        }
+    }
+
+}
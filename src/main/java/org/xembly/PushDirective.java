@@ -42,13 +42,28 @@ import org.w3c.dom.Node;
  * @since 0.16
  */
 @EqualsAndHashCode
-final class PushDirective implements Directive {
+final class PushDirective implements Directive, Encodable {
+
+    /**
+     * The only instance needed, since the directive has no state.
+     */
+    static final PushDirective INSTANCE = new PushDirective();
 
     @Override
     public String toString() {
         return "PUSH";
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.PUSH;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[0];
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack)
@@ -46,13 +46,28 @@ import org.w3c.dom.Node;
  * @since 0.2
  */
 @EqualsAndHashCode
-final class RemoveDirective implements Directive {
+final class RemoveDirective implements Directive, Encodable {
+
+    /**
+     * The only instance needed, since the directive has no state.
+     */
+    static final RemoveDirective INSTANCE = new RemoveDirective();
 
     @Override
     public String toString() {
         return "REMOVE";
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.REMOVE;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[0];
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of parsed scripts, see {@link Directives#cached(String)}.
+ *
+ * <p>Reads don't lock anything, they only mark an entry as recently
+ * used. When there are too many entries, or their scripts are too long
+ * in total, the least recently used ones are evicted by the thread that
+ * inserted the last one, while other threads continue to read.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+final class ScriptCache {
+
+    /**
+     * Shared instance, configured by system properties
+     * {@code org.xembly.cache.entries} (maximum number of scripts, 1024
+     * by default) and {@code org.xembly.cache.weight} (maximum total
+     * length of scripts, 16M characters by default).
+     * @checkstyle MagicNumber (5 lines)
+     */
+    public static final ScriptCache SHARED = new ScriptCache(
+        Integer.getInteger("org.xembly.cache.entries", 1024),
+        Long.getLong("org.xembly.cache.weight", 1L << 24)
+    );
+
+    /**
+     * Entries, by script texts.
+     */
+    private final transient ConcurrentMap<String, ScriptCache.Entry> map =
+        new ConcurrentHashMap<String, ScriptCache.Entry>(0);
+
+    /**
+     * Maximum number of entries.
+     */
+    private final transient int entries;
+
+    /**
+     * Maximum total weight.
+     */
+    private final transient long limit;
+
+    /**
+     * Current total weight.
+     */
+    private final transient AtomicLong weight = new AtomicLong();
+
+    /**
+     * Lock of eviction.
+     */
+    private final transient Lock evicting = new ReentrantLock();
+
+    /**
+     * Hits.
+     */
+    private final transient Counter hits = new Counter();
+
+    /**
+     * Misses.
+     */
+    private final transient Counter misses = new Counter();
+
+    /**
+     * Ctor.
+     * @param max Maximum number of entries
+     * @param wgt Maximum total length of scripts
+     */
+    ScriptCache(final int max, final long wgt) {
+        this.entries = max;
+        this.limit = wgt;
+    }
+
+    /**
+     * Get parsed script, parsing it only if it's not in cache.
+     * @param script Xembly script
+     * @return Directives, immutable
+     * @throws SyntaxException If syntax is broken
+     */
+    public Collection<Directive> get(final String script)
+        throws SyntaxException {
+        final ScriptCache.Entry entry = this.map.get(script);
+        final Collection<Directive> dirs;
+        if (entry == null) {
+            this.misses.increment();
+            dirs = Collections.unmodifiableList(
+                new ArrayList<Directive>(Directives.parse(script))
+            );
+            if (this.map.putIfAbsent(script, new ScriptCache.Entry(dirs))
+                == null) {
+                this.weight.addAndGet(script.length());
+                this.evict();
+            }
+        } else {
+            this.hits.increment();
+            entry.touch();
+            dirs = entry.directives();
+        }
+        return dirs;
+    }
+
+    /**
+     * Number of hits.
+     * @return Total
+     */
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Number of misses.
+     * @return Total
+     */
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Number of scripts in cache.
+     * @return Total
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Reset counters of hits and misses.
+     */
+    public void reset() {
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    /**
+     * Remove all scripts.
+     */
+    public void clear() {
+        this.evicting.lock();
+        try {
+            this.map.clear();
+            this.weight.set(0L);
+        } finally {
+            this.evicting.unlock();
+        }
+    }
+
+    /**
+     * Evict the least recently used entries, if the cache is too big.
+     */
+    private void evict() {
+        if (this.full() && this.evicting.tryLock()) {
+            try {
+                final List<ScriptCache.Victim> all =
+                    new ArrayList<ScriptCache.Victim>(this.map.size());
+                for (final Map.Entry<String, ScriptCache.Entry> entry
+                    : this.map.entrySet()) {
+                    all.add(
+                        new ScriptCache.Victim(
+                            entry.getKey(), entry.getValue()
+                        )
+                    );
+                }
+                Collections.sort(all);
+                for (final ScriptCache.Victim victim : all) {
+                    if (!this.full()) {
+                        break;
+                    }
+                    victim.remove(this.map, this.weight);
+                }
+            } finally {
+                this.evicting.unlock();
+            }
+        }
+    }
+
+    /**
+     * Is it over the limits.
+     * @return TRUE if some entries have to be evicted
+     */
+    private boolean full() {
+        return this.map.size() > this.entries
+            || this.weight.get() > this.limit;
+    }
+
+    /**
+     * Entry of cache.
+     */
+    private static final class Entry {
+        /**
+         * Directives.
+         */
+        private final transient Collection<Directive> dirs;
+        /**
+         * When it was used last time.
+         */
+        private transient volatile long used;
+        /**
+         * Ctor.
+         * @param list Directives
+         */
+        Entry(final Collection<Directive> list) {
+            this.dirs = list;
+            this.used = System.nanoTime();
+        }
+        /**
+         * Mark it as used.
+         */
+        public void touch() {
+            this.used = System.nanoTime();
+        }
+        /**
+         * When it was used last time.
+         * @return Time in nanoseconds
+         */
+        public long used() {
+            return this.used;
+        }
+        /**
+         * Directives.
+         * @return Directives
+         */
+        public Collection<Directive> directives() {
+            return this.dirs;
+        }
+    }
+
+    /**
+     * Candidate for eviction, with the time of its last use fixed.
+     */
+    private static final class Victim
+        implements Comparable<ScriptCache.Victim> {
+        /**
+         * Script.
+         */
+        private final transient String key;
+        /**
+         * Entry.
+         */
+        private final transient ScriptCache.Entry entry;
+        /**
+         * When it was used last time.
+         */
+        private final transient long used;
+        /**
+         * Ctor.
+         * @param script Script
+         * @param ent Entry
+         */
+        Victim(final String script, final ScriptCache.Entry ent) {
+            this.key = script;
+            this.entry = ent;
+            this.used = ent.used();
+        }
+        @Override
+        public int compareTo(final ScriptCache.Victim other) {
+            final int result;
+            if (this.used < other.used) {
+                result = -1;
+            } else if (this.used > other.used) {
+                result = 1;
+            } else {
+                result = 0;
+            }
+            return result;
+        }
+        /**
+         * Remove it from the map, unless it was replaced.
+         * @param map The map
+         * @param weight Total weight of the map
+         */
+        public void remove(final ConcurrentMap<String, ScriptCache.Entry> map,
+            final AtomicLong weight) {
+            if (map.remove(this.key, this.entry)) {
+                weight.addAndGet(-this.key.length());
+            }
+        }
+    }
+
+}
@@ -42,7 +42,7 @@ import org.w3c.dom.Node;
  * @since 0.1
  */
 @EqualsAndHashCode(of = "value")
-final class SetDirective implements Directive {
+final class SetDirective implements Directive, Encodable {
 
     /**
      * Text value to set.
@@ -55,7 +55,16 @@ final class SetDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     SetDirective(final String val) throws XmlContentException {
-        this.value = new Arg(val);
+        this(new Arg(val));
+    }
+
+    /**
+     * Public ctor.
+     * @param val Text value to set
+     * @since 0.23
+     */
+    SetDirective(final Arg val) {
+        this.value = val;
     }
 
     @Override
@@ -63,6 +72,16 @@ final class SetDirective implements Directive {
         return String.format("SET %s", this.value);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.SET;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.value};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack) {
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.Arrays;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+
+/**
+ * Directive with some arguments replaced by parameters, for example
+ * {@code ATTR 'id', $id}.
+ *
+ * <p>It can't be executed until all its parameters are bound to values,
+ * see {@link Prepared}. Only values of parameters are validated when
+ * they are bound, literal arguments are validated once, when the
+ * directive is created.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "opcode", "args", "params" })
+final class SlotDirective implements Directive, Bindable {
+
+    /**
+     * Opcode of the directive to make.
+     */
+    private final transient Opcode opcode;
+
+    /**
+     * Arguments, NULL where a parameter is.
+     */
+    private final transient Arg[] args;
+
+    /**
+     * Names of parameters, NULL where an argument is.
+     */
+    private final transient String[] params;
+
+    /**
+     * Public ctor.
+     * @param code Opcode of the directive
+     * @param items Arguments, either strings or parameters
+     * @throws XmlContentException If some argument is not valid
+     */
+    SlotDirective(final Opcode code, final Object... items)
+        throws XmlContentException {
+        this(code, new Arg[items.length], new String[items.length]);
+        for (int idx = 0; idx < items.length; ++idx) {
+            if (items[idx] instanceof SlotDirective.Param) {
+                this.params[idx] = items[idx].toString().substring(1);
+            } else {
+                this.args[idx] = new Arg(items[idx].toString());
+            }
+        }
+    }
+
+    /**
+     * Private ctor.
+     * @param code Opcode of the directive
+     * @param list Arguments
+     * @param names Names of parameters
+     */
+    private SlotDirective(final Opcode code, final Arg[] list,
+        final String[] names) {
+        this.opcode = code;
+        this.args = list;
+        this.params = names;
+    }
+
+    /**
+     * Make a directive, if there are no parameters among the arguments.
+     * @param code Opcode of the directive
+     * @param items Arguments, either strings or parameters
+     * @return Slot directive, or NULL if there are no parameters
+     * @throws XmlContentException If some argument is not valid
+     */
+    public static Directive of(final Opcode code, final Object... items)
+        throws XmlContentException {
+        Directive dir = null;
+        for (final Object item : items) {
+            if (item instanceof SlotDirective.Param) {
+                dir = new SlotDirective(code, items);
+                break;
+            }
+        }
+        return dir;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder(this.opcode.name());
+        for (int idx = 0; idx < this.args.length; ++idx) {
+            if (idx == 0) {
+                text.append(' ');
+            } else {
+                text.append(", ");
+            }
+            if (this.args[idx] == null) {
+                text.append('$').append(this.params[idx]);
+            } else {
+                text.append(this.args[idx]);
+            }
+        }
+        return text.toString();
+    }
+
+    @Override
+    public Directive bind(final Map<String, ?> values) {
+        final Arg[] list = Arrays.copyOf(this.args, this.args.length);
+        final String[] names = Arrays.copyOf(
+            this.params, this.params.length
+        );
+        boolean full = true;
+        for (int idx = 0; idx < names.length; ++idx) {
+            if (names[idx] != null && values.containsKey(names[idx])) {
+                list[idx] = SlotDirective.arg(
+                    names[idx], values.get(names[idx])
+                );
+                names[idx] = null;
+            } else if (names[idx] != null) {
+                full = false;
+            }
+        }
+        final Directive dir;
+        if (full) {
+            dir = this.opcode.create(list);
+        } else {
+            dir = new SlotDirective(this.opcode, list, names);
+        }
+        return dir;
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final StringBuilder names = new StringBuilder(0);
+        for (final String name : this.params) {
+            if (name != null) {
+                names.append(" $").append(name);
+            }
+        }
+        throw new ImpossibleModificationException(
+            String.format("parameters are not bound:%s", names)
+        );
+    }
+
+    /**
+     * Make an argument from a value of a parameter.
+     * @param name Name of the parameter
+     * @param value The value
+     * @return Argument
+     */
+    private static Arg arg(final String name, final Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException(
+                String.format("parameter $%s can't be NULL", name)
+            );
+        }
+        try {
+            return new Arg(value.toString());
+        } catch (final XmlContentException ex) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "failed to understand XML content, $%s=%s", name, value
+                ),
+                ex
+            );
+        }
+    }
+
+    /**
+     * Parameter of a script, as it is found by the parser.
+     */
+    @EqualsAndHashCode(of = "name")
+    static final class Param {
+        /**
+         * Name, with the leading dollar sign.
+         */
+        private final transient String name;
+        /**
+         * Ctor.
+         * @param text Name, with the leading dollar sign
+         */
+        Param(final String text) {
+            this.name = text;
+        }
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * SORT directive.
+ *
+ * <p>Sorts child elements of every current node by a key, which is
+ * an XPath expression evaluated against every child, either as a text
+ * or as a number. The key of every child is calculated only once. The
+ * sort is stable, children with equal keys keep their order, and
+ * children that are not elements, like text nodes, keep their places.
+ * Elements with keys that are not numbers go last, if the sort is
+ * numeric. The cursor doesn't move.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "key", "mode" })
+final class SortDirective implements Directive, Encodable {
+
+    /**
+     * Mode of sorting by text.
+     */
+    public static final String TEXT = "text";
+
+    /**
+     * Mode of sorting by number.
+     */
+    public static final String NUMBER = "number";
+
+    /**
+     * XPath factory.
+     */
+    private static final XPathFactory FACTORY = XPathFactory.newInstance();
+
+    /**
+     * XPath of the key.
+     */
+    private final transient Arg key;
+
+    /**
+     * Mode, either {@link #TEXT} or {@link #NUMBER}.
+     */
+    private final transient Arg mode;
+
+    /**
+     * Public ctor.
+     * @param path XPath of the key
+     * @param how Mode, either "text" or "number"
+     * @throws XmlContentException If invalid input
+     */
+    SortDirective(final String path, final String how)
+        throws XmlContentException {
+        this(ArgPool.SHARED.get(path), ArgPool.SHARED.get(how));
+    }
+
+    /**
+     * Public ctor.
+     * @param path XPath of the key
+     * @param how Mode, either "text" or "number"
+     */
+    SortDirective(final Arg path, final Arg how) {
+        if (!SortDirective.TEXT.equals(how.raw())
+            && !SortDirective.NUMBER.equals(how.raw())) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "SORT mode must be either \"%s\" or \"%s\": %s",
+                    SortDirective.TEXT, SortDirective.NUMBER, how
+                )
+            );
+        }
+        this.key = path;
+        this.mode = how;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SORT %s, %s", this.key, this.mode);
+    }
+
+    @Override
+    public Opcode opcode() {
+        return Opcode.SORT;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.key, this.mode};
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final XPathExpression xpath;
+        try {
+            xpath = SortDirective.FACTORY.newXPath().compile(this.key.raw());
+        } catch (final XPathExpressionException ex) {
+            throw new ImpossibleModificationException(
+                String.format("invalid XPath expr '%s'", this.key.raw()), ex
+            );
+        }
+        final boolean numeric = SortDirective.NUMBER.equals(this.mode.raw());
+        for (final Node node : cursor) {
+            this.sort(node, xpath, numeric);
+        }
+        return cursor;
+    }
+
+    /**
+     * Sort children of the node.
+     * @param node The node
+     * @param xpath Compiled key
+     * @param numeric Sort by numbers?
+     * @throws ImpossibleModificationException If fails
+     */
+    private void sort(final Node node, final XPathExpression xpath,
+        final boolean numeric) throws ImpossibleModificationException {
+        final NodeList list = node.getChildNodes();
+        final int len = list.getLength();
+        final Node[] children = new Node[len];
+        final List<SortDirective.Item> items =
+            new ArrayList<SortDirective.Item>(len);
+        for (int idx = 0; idx < len; ++idx) {
+            final Node child = list.item(idx);
+            children[idx] = child;
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                items.add(
+                    new SortDirective.Item(
+                        child, this.value(xpath, child, numeric)
+                    )
+                );
+            }
+        }
+        if (items.size() > 1) {
+            Collections.sort(items, SortDirective.Item.ORDER);
+            int pos = 0;
+            for (final Node child : children) {
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    node.appendChild(items.get(pos).node);
+                    ++pos;
+                } else {
+                    node.appendChild(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate the key of the node.
+     * @param xpath Compiled key
+     * @param node The node
+     * @param numeric Is it a number?
+     * @return The key, either a Double or a String
+     * @throws ImpossibleModificationException If fails
+     */
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> value(final XPathExpression xpath,
+        final Node node, final boolean numeric)
+        throws ImpossibleModificationException {
+        try {
+            final Object value;
+            if (numeric) {
+                value = xpath.evaluate(node, XPathConstants.NUMBER);
+            } else {
+                value = xpath.evaluate(node, XPathConstants.STRING);
+            }
+            return Comparable.class.cast(value);
+        } catch (final XPathExpressionException ex) {
+            throw new ImpossibleModificationException(
+                String.format("failed to evaluate '%s'", this.key.raw()), ex
+            );
+        }
+    }
+
+    /**
+     * Child with its key.
+     */
+    private static final class Item {
+        /**
+         * Order of items, by their keys.
+         */
+        private static final Comparator<SortDirective.Item> ORDER =
+            new Comparator<SortDirective.Item>() {
+                @Override
+                public int compare(final SortDirective.Item left,
+                    final SortDirective.Item right) {
+                    return left.key.compareTo(right.key);
+                }
+            };
+        /**
+         * The child.
+         */
+        private final transient Node node;
+        /**
+         * Its key.
+         */
+        private final transient Comparable<Object> key;
+        /**
+         * Ctor.
+         * @param child The child
+         * @param value Its key
+         */
+        Item(final Node child, final Comparable<Object> value) {
+            this.node = child;
+            this.key = value;
+        }
+    }
+
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Directives stored outside of the heap.
+ *
+ * <p>Use it instead of {@link Directives} when a script is too big to
+ * keep all its {@link Directive} objects in memory. Directives are
+ * appended in batches, encoded to {@link Bytecode} and stored in direct
+ * buffers. When the buffers grow bigger than the threshold, the rest is
+ * written to a temporary file. Directives are decoded back one by one,
+ * only while they are iterated, for example by {@link Xembler}:
+ *
+ * <pre> Spool spool = new Spool(1L &lt;&lt; 26);
+ * try {
+ *   for (Row row : rows) {
+ *     spool.append(new Directives().add("row").set(row.text()).up());
+ *   }
+ *   new Xembler(spool).apply(dom);
+ * } finally {
+ *   spool.close();
+ * }</pre>
+ *
+ * <p>The class is mutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class Spool implements Iterable<Directive>, Closeable {
+
+    /**
+     * Directives in one encoded chunk.
+     */
+    private static final int BATCH = 4096;
+
+    /**
+     * Size of one direct buffer.
+     */
+    private static final int SEGMENT = 1 << 20;
+
+    /**
+     * Maximum size of direct buffers, in bytes.
+     */
+    private final transient long threshold;
+
+    /**
+     * Directives not encoded yet.
+     */
+    private final transient List<Directive> pending =
+        new ArrayList<Directive>(0);
+
+    /**
+     * Encoded chunks, in direct buffers or in the file.
+     */
+    private final transient List<Spool.Chunk> chunks =
+        new ArrayList<Spool.Chunk>(0);
+
+    /**
+     * Current direct buffer.
+     */
+    private transient ByteBuffer segment;
+
+    /**
+     * Bytes stored in direct buffers.
+     */
+    private transient long memory;
+
+    /**
+     * Temporary file or NULL, if nothing was written yet.
+     */
+    private transient File temp;
+
+    /**
+     * Channel of the temporary file or NULL.
+     */
+    private transient FileChannel channel;
+
+    /**
+     * Total number of directives.
+     */
+    private transient long total;
+
+    /**
+     * Public ctor, with 64Mb of direct buffers.
+     */
+    public Spool() {
+        this(1L << 26);
+    }
+
+    /**
+     * Public ctor.
+     * @param max Maximum size of direct buffers, in bytes,
+     *  everything above is written to a temporary file
+     */
+    public Spool(final long max) {
+        this.threshold = max;
+    }
+
+    /**
+     * Append directives.
+     *
+     * <p>All directives must be the ones created by {@link Directives},
+     * see {@link Bytecode#encode(Iterable)}.
+     *
+     * @param dirs Directives to append
+     * @return This object
+     */
+    public Spool append(final Iterable<Directive> dirs) {
+        synchronized (this.chunks) {
+            for (final Directive dir : dirs) {
+                this.pending.add(dir);
+                ++this.total;
+                if (this.pending.size() >= Spool.BATCH) {
+                    this.flush();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Total number of directives.
+     * @return Total
+     */
+    public long size() {
+        synchronized (this.chunks) {
+            return this.total;
+        }
+    }
+
+    @Override
+    public Iterator<Directive> iterator() {
+        synchronized (this.chunks) {
+            this.flush();
+            return new Spool.Decoding(
+                new ArrayList<Spool.Chunk>(this.chunks).iterator()
+            );
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this.chunks) {
+            this.chunks.clear();
+            this.pending.clear();
+            this.segment = null;
+            this.memory = 0L;
+            this.total = 0L;
+            if (this.channel != null) {
+                this.channel.close();
+                this.channel = null;
+            }
+            if (this.temp != null) {
+                if (!this.temp.delete()) {
+                    throw new IOException(
+                        String.format("failed to delete %s", this.temp)
+                    );
+                }
+                this.temp = null;
+            }
+        }
+    }
+
+    /**
+     * Encode pending directives and store them.
+     */
+    private void flush() {
+        if (!this.pending.isEmpty()) {
+            final byte[] bytes = Bytecode.encode(this.pending);
+            this.pending.clear();
+            if (this.memory + bytes.length <= this.threshold) {
+                this.chunks.add(new Spool.Chunk(this.store(bytes)));
+            } else {
+                this.chunks.add(this.spill(bytes));
+            }
+        }
+    }
+
+    /**
+     * Store bytes in a direct buffer.
+     * @param bytes Bytes to store
+     * @return Buffer with exactly these bytes
+     */
+    private ByteBuffer store(final byte[] bytes) {
+        if (this.segment == null || this.segment.remaining() < bytes.length) {
+            this.segment = ByteBuffer.allocateDirect(
+                Math.max(Spool.SEGMENT, bytes.length)
+            );
+        }
+        final ByteBuffer slice = this.segment.slice();
+        slice.put(bytes).flip();
+        this.segment.position(this.segment.position() + bytes.length);
+        this.memory += bytes.length;
+        return slice.asReadOnlyBuffer();
+    }
+
+    /**
+     * Write bytes to the temporary file.
+     * @param bytes Bytes to write
+     * @return Chunk in the file
+     */
+    private Spool.Chunk spill(final byte[] bytes) {
+        try {
+            if (this.channel == null) {
+                this.temp = File.createTempFile("xembly", ".spool");
+                this.temp.deleteOnExit();
+                this.channel = new RandomAccessFile(this.temp, "rw")
+                    .getChannel();
+            }
+            final long pos = this.channel.size();
+            final ByteBuffer buf = ByteBuffer.wrap(bytes);
+            long offset = pos;
+            while (buf.hasRemaining()) {
+                offset += this.channel.write(buf, offset);
+            }
+            return new Spool.Chunk(this.channel, pos, bytes.length);
+        } catch (final IOException ex) {
+            throw new IllegalStateException(
+                "failed to write directives to a temporary file", ex
+            );
+        }
+    }
+
+    /**
+     * Encoded chunk of directives.
+     */
+    private static final class Chunk {
+        /**
+         * Bytes in memory or NULL.
+         */
+        private final transient ByteBuffer bytes;
+        /**
+         * Channel of the file or NULL.
+         */
+        private final transient FileChannel channel;
+        /**
+         * Position in the file.
+         */
+        private final transient long pos;
+        /**
+         * Size in the file.
+         */
+        private final transient int size;
+        /**
+         * Ctor.
+         * @param buf Bytes in memory
+         */
+        Chunk(final ByteBuffer buf) {
+            this.bytes = buf;
+            this.channel = null;
+            this.pos = 0L;
+            this.size = buf.remaining();
+        }
+        /**
+         * Ctor.
+         * @param chnl Channel of the file
+         * @param position Position in the file
+         * @param len Size in the file
+         */
+        Chunk(final FileChannel chnl, final long position, final int len) {
+            this.bytes = null;
+            this.channel = chnl;
+            this.pos = position;
+            this.size = len;
+        }
+        /**
+         * Decode it.
+         *
+         * <p>A chunk in the file is read into the given buffer, not mapped,
+         * since every mapping stays in memory until it's collected.
+         * The buffer can be reused as soon as the directives of this
+         * chunk are iterated.
+         *
+         * @param scratch Buffer to read the file into, big enough
+         * @return Directives
+         */
+        public Iterator<Directive> directives(final ByteBuffer scratch) {
+            final ByteBuffer buf;
+            if (this.bytes == null) {
+                buf = scratch;
+                buf.clear();
+                buf.limit(this.size);
+                try {
+                    while (buf.hasRemaining()) {
+                        final int len = this.channel.read(
+                            buf, this.pos + buf.position()
+                        );
+                        if (len < 0) {
+                            throw new EOFException(
+                                "temporary file is truncated"
+                            );
+                        }
+                    }
+                } catch (final IOException ex) {
+                    throw new IllegalStateException(
+                        "failed to read directives from a temporary file",
+                        ex
+                    );
+                }
+                buf.flip();
+            } else {
+                buf = this.bytes.duplicate();
+            }
+            return new Bytecode(buf).iterator();
+        }
+    }
+
+    /**
+     * Iterator of directives, decoding chunks one by one.
+     */
+    private static final class Decoding implements Iterator<Directive> {
+        /**
+         * Chunks left.
+         */
+        private final transient Iterator<Spool.Chunk> chunks;
+        /**
+         * Directives of the current chunk.
+         */
+        private transient Iterator<Directive> current =
+            Collections.<Directive>emptyList().iterator();
+        /**
+         * Buffer to read chunks from the file into.
+         */
+        private transient ByteBuffer buffer = ByteBuffer.allocate(0);
+        /**
+         * Ctor.
+         * @param all Chunks
+         */
+        Decoding(final Iterator<Spool.Chunk> all) {
+            this.chunks = all;
+        }
+        @Override
+        public boolean hasNext() {
+            while (!this.current.hasNext() && this.chunks.hasNext()) {
+                final Spool.Chunk chunk = this.chunks.next();
+                if (this.buffer.capacity() < chunk.size) {
+                    this.buffer = ByteBuffer.allocate(chunk.size);
+                }
+                this.current = chunk.directives(this.buffer);
+            }
+            return this.current.hasNext();
+        }
+        @Override
+        public Directive next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("no more directives");
+            }
+            return this.current.next();
+        }
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove()");
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live statistics of Xembly engine, exposed through JMX.
+ *
+ * <p>Statistics are not collected by default. Either call
+ * {@link #register()} once, or start the JVM with
+ * {@code -Dorg.xembly.jmx=true}, and the MBean will appear in
+ * JConsole or VisualVM as {@code org.xembly:type=Statistics}.
+ *
+ * <p>All counters are striped (see {@link Counter}), so that threads
+ * applying directives concurrently don't wait for each other.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public final class Statistics implements StatisticsMXBean, Trace {
+
+    /**
+     * Name of the MBean.
+     */
+    public static final String NAME = "org.xembly:type=Statistics";
+
+    /**
+     * The only instance registered in JMX.
+     */
+    private static final Statistics INSTANCE = new Statistics();
+
+    /**
+     * Nanoseconds in one millisecond.
+     */
+    private static final double MILLI = 1.0e6;
+
+    /**
+     * Nanoseconds in one second.
+     */
+    private static final double SECOND = 1.0e9;
+
+    /**
+     * Applies completed.
+     */
+    private final transient Counter applies = new Counter();
+
+    /**
+     * Time spent in applies.
+     */
+    private final transient Counter applying = new Counter();
+
+    /**
+     * Directives executed, by type.
+     */
+    private final transient ConcurrentMap<Class<?>, Counter> types =
+        new ConcurrentHashMap<Class<?>, Counter>(0);
+
+    /**
+     * Failures.
+     */
+    private final transient Counter failures = new Counter();
+
+    /**
+     * Scripts parsed.
+     */
+    private final transient Counter parses = new Counter();
+
+    /**
+     * Time spent in parsing.
+     */
+    private final transient Counter parsing = new Counter();
+
+    /**
+     * Documents rendered.
+     */
+    private final transient Counter serializations = new Counter();
+
+    /**
+     * Time spent in rendering.
+     */
+    private final transient Counter serializing = new Counter();
+
+    /**
+     * When counting started, in nanoseconds.
+     */
+    private transient volatile long start = System.nanoTime();
+
+    /**
+     * Register in the platform MBean server and start collecting
+     * (does nothing if it's already registered).
+     * @return The statistics
+     */
+    public static StatisticsMXBean register() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (Statistics.INSTANCE) {
+            try {
+                final ObjectName name = new ObjectName(Statistics.NAME);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(Statistics.INSTANCE, name);
+                }
+            } catch (final JMException ex) {
+                throw new IllegalStateException(
+                    String.format("failed to register %s", Statistics.NAME),
+                    ex
+                );
+            }
+            Traces.attach(Statistics.INSTANCE);
+        }
+        return Statistics.INSTANCE;
+    }
+
+    /**
+     * Stop collecting and remove from the platform MBean server
+     * (does nothing if it's not registered).
+     */
+    public static void unregister() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (Statistics.INSTANCE) {
+            Traces.detach(Statistics.INSTANCE);
+            try {
+                final ObjectName name = new ObjectName(Statistics.NAME);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (final JMException ex) {
+                throw new IllegalStateException(
+                    String.format("failed to unregister %s", Statistics.NAME),
+                    ex
+                );
+            }
+        }
+    }
+
+    @Override
+    public void parsed(final int length, final int directives,
+        final long nanos) {
+        this.parses.increment();
+        this.parsing.add(nanos);
+    }
+
+    @Override
+    public void executed(final Directive dir, final int cursor,
+        final long nanos) {
+        final Class<?> type = dir.getClass();
+        Counter counter = this.types.get(type);
+        if (counter == null) {
+            counter = new Counter();
+            final Counter before = this.types.putIfAbsent(type, counter);
+            if (before != null) {
+                counter = before;
+            }
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void failed(final Directive dir,
+        final ImpossibleModificationException cause) {
+        this.failures.increment();
+    }
+
+    @Override
+    public void applied(final int directives, final int nodes,
+        final long nanos) {
+        this.applies.increment();
+        this.applying.add(nanos);
+    }
+
+    @Override
+    public void serialized(final int length, final long nanos) {
+        this.serializations.increment();
+        this.serializing.add(nanos);
+    }
+
+    @Override
+    public long getApplies() {
+        return this.applies.sum();
+    }
+
+    @Override
+    public double getAppliesPerSecond() {
+        return this.rate(this.applies.sum());
+    }
+
+    @Override
+    public double getApplyMillis() {
+        return Statistics.average(this.applying.sum(), this.applies.sum());
+    }
+
+    @Override
+    public long getDirectives() {
+        long total = 0L;
+        for (final Counter counter : this.types.values()) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public double getDirectivesPerSecond() {
+        return this.rate(this.getDirectives());
+    }
+
+    @Override
+    public Map<String, Long> getDirectivesByType() {
+        final Map<String, Long> map = new TreeMap<String, Long>();
+        for (final Map.Entry<Class<?>, Counter> entry
+            : this.types.entrySet()) {
+            final String name = Statistics.verb(entry.getKey());
+            Long total = map.get(name);
+            if (total == null) {
+                total = 0L;
+            }
+            map.put(name, total + entry.getValue().sum());
+        }
+        return map;
+    }
+
+    @Override
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    @Override
+    public long getParses() {
+        return this.parses.sum();
+    }
+
+    @Override
+    public double getParseMillis() {
+        return Statistics.average(this.parsing.sum(), this.parses.sum());
+    }
+
+    @Override
+    public long getCacheHits() {
+        return ScriptCache.SHARED.hits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return ScriptCache.SHARED.misses();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        final long hits = ScriptCache.SHARED.hits();
+        final long total = hits + ScriptCache.SHARED.misses();
+        final double ratio;
+        if (total > 0L) {
+            ratio = (double) hits / total;
+        } else {
+            ratio = 0.0d;
+        }
+        return ratio;
+    }
+
+    @Override
+    public long getSerializations() {
+        return this.serializations.sum();
+    }
+
+    @Override
+    public double getSerializeMillis() {
+        return Statistics.average(
+            this.serializing.sum(), this.serializations.sum()
+        );
+    }
+
+    @Override
+    public void reset() {
+        this.applies.reset();
+        this.applying.reset();
+        this.types.clear();
+        this.failures.reset();
+        this.parses.reset();
+        this.parsing.reset();
+        this.serializations.reset();
+        this.serializing.reset();
+        ScriptCache.SHARED.reset();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Calculate rate per second since the start.
+     * @param total Total number of events
+     * @return Events per second
+     */
+    private double rate(final long total) {
+        final long nanos = System.nanoTime() - this.start;
+        final double rate;
+        if (nanos > 0L) {
+            rate = total * Statistics.SECOND / nanos;
+        } else {
+            rate = 0.0d;
+        }
+        return rate;
+    }
+
+    /**
+     * Calculate average duration in milliseconds.
+     * @param nanos Total duration, in nanoseconds
+     * @param total Total number of events
+     * @return Milliseconds per event
+     */
+    private static double average(final long nanos, final long total) {
+        final double avg;
+        if (total > 0L) {
+            avg = nanos / Statistics.MILLI / total;
+        } else {
+            avg = 0.0d;
+        }
+        return avg;
+    }
+
+    /**
+     * Make a name of directive type, like "ADDIF" for "AddIfDirective".
+     * @param type Type of directive
+     * @return Name
+     */
+    private static String verb(final Class<?> type) {
+        String name = type.getSimpleName();
+        if (name.isEmpty()) {
+            name = type.getName();
+        }
+        final String suffix = "Directive";
+        if (name.endsWith(suffix) && name.length() > suffix.length()) {
+            name = name.substring(0, name.length() - suffix.length());
+        }
+        return name.toUpperCase(Locale.ENGLISH);
+    }
+
+}
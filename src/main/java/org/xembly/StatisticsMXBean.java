@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.Map;
+
+/**
+ * JMX view of Xembly engine statistics.
+ *
+ * <p>Counters are cumulative since the start or since the last
+ * {@link #reset()}, rates are averaged over the same period.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ * @see Statistics
+ */
+public interface StatisticsMXBean {
+
+    /**
+     * Number of {@link Xembler#apply(org.w3c.dom.Node)} calls completed.
+     * @return Total
+     */
+    long getApplies();
+
+    /**
+     * Applies per second.
+     * @return Rate
+     */
+    double getAppliesPerSecond();
+
+    /**
+     * Average duration of one apply, in milliseconds.
+     * @return Duration
+     */
+    double getApplyMillis();
+
+    /**
+     * Number of directives executed.
+     * @return Total
+     */
+    long getDirectives();
+
+    /**
+     * Directives executed per second.
+     * @return Rate
+     */
+    double getDirectivesPerSecond();
+
+    /**
+     * Number of directives executed, by their type, like "ADD" or "XPATH".
+     * @return Totals by type
+     */
+    Map<String, Long> getDirectivesByType();
+
+    /**
+     * Number of {@link ImpossibleModificationException}s thrown.
+     * @return Total
+     */
+    long getFailures();
+
+    /**
+     * Number of scripts parsed by {@link Directives}.
+     * @return Total
+     */
+    long getParses();
+
+    /**
+     * Average duration of one parse, in milliseconds.
+     * @return Duration
+     */
+    double getParseMillis();
+
+    /**
+     * Number of scripts found in the cache of
+     * {@link Directives#cached(String)}.
+     * @return Total
+     */
+    long getCacheHits();
+
+    /**
+     * Number of scripts not found in the cache of
+     * {@link Directives#cached(String)}.
+     * @return Total
+     */
+    long getCacheMisses();
+
+    /**
+     * Ratio of hits to all lookups in the cache of
+     * {@link Directives#cached(String)}, from zero to one.
+     * @return Ratio
+     */
+    double getCacheHitRatio();
+
+    /**
+     * Number of documents rendered by {@link Xembler#xml()}.
+     * @return Total
+     */
+    long getSerializations();
+
+    /**
+     * Average duration of one rendering, in milliseconds.
+     * @return Duration
+     */
+    double getSerializeMillis();
+
+    /**
+     * Reset all counters to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * SET or CDATA directive with a value supplied lazily.
+ *
+ * <p>The value is not materialized when the directive is created. It
+ * is taken from a {@link Reader} or a {@link Callable} only when the
+ * directive is executed. A reader is read chunk by chunk, every chunk
+ * is validated and written to the DOM as a separate text node, or
+ * a CDATA section, before the next one is read. That's why no more
+ * than one chunk is kept on heap, except the DOM itself. A string
+ * returned by the callable is used as is, any other char sequence is
+ * copied chunk by chunk too. A reader is consumed only once, but not
+ * closed, that is the responsibility of its owner.
+ *
+ * <p>If the text has an illegal character, the execution fails, but
+ * the chunks before it may be already written to the DOM.
+ *
+ * <p>The directive can't be encoded, since its value is not known
+ * until it is executed.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = { "source", "cdata" })
+final class StreamDirective implements Directive {
+
+    /**
+     * Size of a chunk to read, in characters.
+     */
+    private static final int CHUNK = 8192;
+
+    /**
+     * Source of the value, either a reader or a callable.
+     */
+    private final transient Object source;
+
+    /**
+     * Shall it be a CDATA section?
+     */
+    private final transient boolean cdata;
+
+    /**
+     * Is the reader consumed already?
+     */
+    private final transient AtomicBoolean consumed;
+
+    /**
+     * Public ctor.
+     * @param src Reader to take the value from
+     * @param cdt TRUE if a CDATA section is needed
+     */
+    StreamDirective(final Reader src, final boolean cdt) {
+        this((Object) src, cdt);
+    }
+
+    /**
+     * Public ctor.
+     * @param src Callable to take the value from
+     * @param cdt TRUE if a CDATA section is needed
+     */
+    StreamDirective(final Callable<? extends CharSequence> src,
+        final boolean cdt) {
+        this((Object) src, cdt);
+    }
+
+    /**
+     * Private ctor.
+     * @param src Source of the value
+     * @param cdt TRUE if a CDATA section is needed
+     */
+    private StreamDirective(final Object src, final boolean cdt) {
+        this.source = src;
+        this.cdata = cdt;
+        this.consumed = new AtomicBoolean();
+    }
+
+    @Override
+    public String toString() {
+        final String verb;
+        if (this.cdata) {
+            verb = "CDATA";
+        } else {
+            verb = "SET";
+        }
+        return String.format(
+            "%s <%s>", verb, this.source.getClass().getSimpleName()
+        );
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack)
+        throws ImpossibleModificationException {
+        final Document doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = Document.class.cast(dom);
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        final Collection<Node> targets = new LinkedList<Node>();
+        for (final Node node : cursor) {
+            if (!this.cdata) {
+                node.setTextContent("");
+            }
+            targets.add(node);
+        }
+        try {
+            if (this.source instanceof Reader) {
+                this.read(Reader.class.cast(this.source), doc, targets);
+            } else {
+                this.write(this.call(), doc, targets);
+            }
+        } catch (final XmlContentException ex) {
+            throw new ImpossibleModificationException(
+                String.format("illegal XML content in %s", this), ex
+            );
+        }
+        return cursor;
+    }
+
+    /**
+     * Read the entire reader, writing it to the nodes chunk by chunk.
+     * @param reader The reader
+     * @param doc Document
+     * @param targets Nodes to write to
+     * @throws ImpossibleModificationException If can't read
+     * @throws XmlContentException If illegal content
+     */
+    private void read(final Reader reader, final Document doc,
+        final Collection<Node> targets)
+        throws ImpossibleModificationException, XmlContentException {
+        if (!this.consumed.compareAndSet(false, true)) {
+            throw new ImpossibleModificationException(
+                String.format("the reader is consumed already by %s", this)
+            );
+        }
+        final char[] chunk = new char[StreamDirective.CHUNK];
+        try {
+            for (int len = StreamDirective.fill(reader, chunk); len > 0;
+                len = StreamDirective.fill(reader, chunk)) {
+                final String text = new String(chunk, 0, len);
+                StreamDirective.validate(text);
+                this.append(doc, targets, text);
+            }
+        } catch (final IOException ex) {
+            throw new ImpossibleModificationException(
+                String.format("failed to read %s", this), ex
+            );
+        }
+    }
+
+    /**
+     * Write the text to the nodes chunk by chunk.
+     * @param text The text
+     * @param doc Document
+     * @param targets Nodes to write to
+     * @throws XmlContentException If illegal content
+     */
+    private void write(final CharSequence text, final Document doc,
+        final Collection<Node> targets) throws XmlContentException {
+        if (text instanceof String) {
+            StreamDirective.validate(text);
+            if (text.length() > 0) {
+                this.append(doc, targets, text.toString());
+            }
+        } else {
+            final int len = text.length();
+            for (int start = 0; start < len; start += StreamDirective.CHUNK) {
+                final String chunk = text.subSequence(
+                    start, Math.min(len, start + StreamDirective.CHUNK)
+                ).toString();
+                StreamDirective.validate(chunk);
+                this.append(doc, targets, chunk);
+            }
+        }
+    }
+
+    /**
+     * Append a chunk of text to all nodes.
+     * @param doc Document
+     * @param targets Nodes to append to
+     * @param text The chunk
+     */
+    private void append(final Document doc, final Collection<Node> targets,
+        final String text) {
+        for (final Node node : targets) {
+            if (this.cdata) {
+                node.appendChild(doc.createCDATASection(text));
+            } else {
+                node.appendChild(doc.createTextNode(text));
+            }
+        }
+    }
+
+    /**
+     * Take the value from the callable.
+     * @return The value, not validated yet
+     * @throws ImpossibleModificationException If the callable fails
+     */
+    private CharSequence call() throws ImpossibleModificationException {
+        final CharSequence text;
+        try {
+            text = CharSequence.class.cast(
+                Callable.class.cast(this.source).call()
+            );
+        // @checkstyle IllegalCatch (1 line)
+        } catch (final Exception ex) {
+            throw new ImpossibleModificationException(
+                String.format("failed to get the value of %s", this), ex
+            );
+        }
+        if (text == null) {
+            throw new ImpossibleModificationException(
+                String.format("the value of %s is NULL", this)
+            );
+        }
+        return text;
+    }
+
+    /**
+     * Read characters from the reader until the array is full or EOF.
+     * @param reader The reader
+     * @param chunk Where to read to
+     * @return How many characters were read
+     * @throws IOException If can't read
+     */
+    private static int fill(final Reader reader, final char[] chunk)
+        throws IOException {
+        int total = 0;
+        int len = 0;
+        while (total < chunk.length && len >= 0) {
+            len = reader.read(chunk, total, chunk.length - total);
+            if (len > 0) {
+                total += len;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Validate the text.
+     * @param text The text
+     * @throws XmlContentException If illegal content
+     */
+    private static void validate(final CharSequence text)
+        throws XmlContentException {
+        final int len = text.length();
+        for (int idx = 0; idx < len; ++idx) {
+            final char chr = text.charAt(idx);
+            if (Arg.illegal(chr)) {
+                Arg.legal(chr);
+            }
+        }
+    }
+
+}
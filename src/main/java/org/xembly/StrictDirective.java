@@ -42,7 +42,7 @@ import org.w3c.dom.Node;
  * @since 0.3
  */
 @EqualsAndHashCode(of = "number")
-final class StrictDirective implements Directive {
+final class StrictDirective implements Directive, Encodable {
 
     /**
      * Number of nodes we're expecting.
@@ -62,6 +62,20 @@ final class StrictDirective implements Directive {
         return String.format("STRICT \"%d\"", this.number);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.STRICT;
+    }
+
+    @Override
+    public Arg[] args() {
+        try {
+            return new Arg[] {new Arg(Integer.toString(this.number))};
+        } catch (final XmlContentException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack)
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Document;
+
+/**
+ * Document built by a skeleton script once and then copied for
+ * every use.
+ *
+ * <p>When many documents start with the same directives, apply them
+ * only once and then modify deep copies of the result:
+ *
+ * <pre> Template template = new Template(new Directives(skeleton));
+ * Document dom = template.apply(new Directives().xpath("/page").add("x"));
+ * </pre>
+ *
+ * <p>The skeleton is applied lazily, on the first call. Its result is
+ * never exposed and never modified, every caller gets its own copy.
+ * Copying a document is a native DOM operation, which is much faster
+ * than interpreting the skeleton again.
+ *
+ * <p>The class is thread-safe. DOM doesn't guarantee that a document can
+ * be read by many threads at the same time, that's why the base document
+ * is built and cloned only under a lock. Every thread clones it there
+ * once, keeps the clone in a thread local variable and makes further
+ * copies from it, without locking. Thus, every thread holds one extra
+ * copy of the document while the template is alive.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "skeleton")
+public final class Template {
+
+    /**
+     * Skeleton directives.
+     */
+    private final transient Iterable<Directive> skeleton;
+
+    /**
+     * Lock, guarding the base document.
+     */
+    private final transient Object lock;
+
+    /**
+     * Base document, or NULL if it's not built yet, guarded by the lock.
+     */
+    private transient Document base;
+
+    /**
+     * Copies of the base document, one per thread.
+     */
+    private final transient ThreadLocal<Document> copies;
+
+    /**
+     * Public ctor.
+     * @param dirs Skeleton directives
+     */
+    public Template(final Iterable<Directive> dirs) {
+        this.skeleton = dirs;
+        this.lock = new Object();
+        this.copies = new ThreadLocal<Document>();
+    }
+
+    /**
+     * Make a new copy of the document, built by the skeleton.
+     * @return New document
+     * @throws ImpossibleModificationException If the skeleton fails
+     */
+    public Document dom() throws ImpossibleModificationException {
+        Document own = this.copies.get();
+        if (own == null) {
+            synchronized (this.lock) {
+                if (this.base == null) {
+                    this.base = new Xembler(this.skeleton).dom();
+                }
+                own = Document.class.cast(this.base.cloneNode(true));
+            }
+            this.copies.set(own);
+        }
+        return Document.class.cast(own.cloneNode(true));
+    }
+
+    /**
+     * Make a new copy of the document and apply directives to it.
+     * @param dirs Directives to apply to the copy
+     * @return New document
+     * @throws ImpossibleModificationException If can't modify
+     */
+    public Document apply(final Iterable<Directive> dirs)
+        throws ImpossibleModificationException {
+        final Document dom = this.dom();
+        new Xembler(dirs).apply(dom);
+        return dom;
+    }
+
+    /**
+     * Make a new copy of the document and apply directives to it,
+     * without checked exceptions.
+     * @param dirs Directives to apply to the copy
+     * @return New document
+     */
+    public Document applyQuietly(final Iterable<Directive> dirs) {
+        try {
+            return this.apply(dirs);
+        } catch (final ImpossibleModificationException ex) {
+            throw new IllegalStateException(
+                String.format(
+                    "failed to apply to template quietly: %s", dirs
+                ),
+                ex
+            );
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+/**
+ * Observer of Xembly engine activity.
+ *
+ * <p>Implementations are attached through {@link Traces#attach(Trace)}
+ * and receive events about script parsing in {@link Directives},
+ * execution of directives in {@link Xembler#apply(org.w3c.dom.Node)}
+ * and XML rendering in {@link Xembler#xml()}. When nothing is attached,
+ * which is the default, the engine doesn't measure anything.
+ *
+ * <p>The interface is designed to be bridged to JDK Flight Recorder,
+ * when it's available at runtime. For example, an implementation of
+ * {@link #executed(Directive, int, long)} may commit a custom
+ * {@code jdk.jfr.Event} and let the recording decide, by its
+ * {@code threshold} setting, which directives are slow enough to be kept.
+ *
+ * <p>Implementations must be thread-safe, since events are fired
+ * from all threads that use Xembly.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public interface Trace {
+
+    /**
+     * Script was parsed.
+     * @param length Length of the script, in characters
+     * @param directives Total number of directives parsed
+     * @param nanos Duration, in nanoseconds
+     */
+    void parsed(int length, int directives, long nanos);
+
+    /**
+     * One directive was executed.
+     * @param dir The directive
+     * @param cursor Number of nodes in the cursor before execution
+     * @param nanos Duration, in nanoseconds
+     */
+    void executed(Directive dir, int cursor, long nanos);
+
+    /**
+     * One directive failed.
+     * @param dir The directive
+     * @param cause The problem
+     */
+    void failed(Directive dir, ImpossibleModificationException cause);
+
+    /**
+     * Directives were applied to a DOM node.
+     * @param directives Total number of directives executed
+     * @param nodes Total number of nodes the directives touched
+     * @param nanos Duration, in nanoseconds
+     */
+    void applied(int directives, int nodes, long nanos);
+
+    /**
+     * DOM was rendered to XML text.
+     * @param length Length of the XML, in characters
+     * @param nanos Duration, in nanoseconds
+     */
+    void serialized(int length, long nanos);
+
+}
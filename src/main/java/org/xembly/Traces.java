@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of {@link Trace}s attached to the engine.
+ *
+ * <p>For example, to observe everything Xembly does in this JVM:
+ *
+ * <pre> Trace trace = new MyFlightRecorderTrace();
+ * Traces.attach(trace);
+ * try {
+ *   new Xembler(new Directives("ADD 'x';")).xml();
+ * } finally {
+ *   Traces.detach(trace);
+ * }</pre>
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class Traces {
+
+    /**
+     * All traces attached.
+     */
+    private static final CopyOnWriteArrayList<Trace> ALL =
+        new CopyOnWriteArrayList<Trace>();
+
+    /**
+     * Trace to notify, or NULL if nothing is attached.
+     */
+    private static volatile Trace current;
+
+    static {
+        if (Boolean.getBoolean("org.xembly.jmx")) {
+            Statistics.register();
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private Traces() {
+        // intentionally empty
+    }
+
+    /**
+     * Attach a trace (does nothing if it's already attached).
+     * @param trace The trace to attach
+     */
+    public static void attach(final Trace trace) {
+        synchronized (Traces.ALL) {
+            Traces.ALL.addIfAbsent(trace);
+            Traces.refresh();
+        }
+    }
+
+    /**
+     * Detach a trace (does nothing if it's not attached).
+     * @param trace The trace to detach
+     */
+    public static void detach(final Trace trace) {
+        synchronized (Traces.ALL) {
+            Traces.ALL.remove(trace);
+            Traces.refresh();
+        }
+    }
+
+    /**
+     * Get the trace to notify.
+     * @return Trace or NULL if nothing is attached
+     */
+    static Trace current() {
+        return Traces.current;
+    }
+
+    /**
+     * Rebuild the current trace from the list of attached ones.
+     */
+    private static void refresh() {
+        if (Traces.ALL.isEmpty()) {
+            Traces.current = null;
+        } else if (Traces.ALL.size() == 1) {
+            Traces.current = Traces.ALL.get(0);
+        } else {
+            Traces.current = new Traces.Fanout(
+                Traces.ALL.toArray(new Trace[Traces.ALL.size()])
+            );
+        }
+    }
+
+    /**
+     * Trace that notifies many traces.
+     */
+    private static final class Fanout implements Trace {
+        /**
+         * Traces to notify.
+         */
+        private final transient Trace[] traces;
+        /**
+         * Ctor.
+         * @param all Traces to notify
+         */
+        Fanout(final Trace... all) {
+            this.traces = Arrays.copyOf(all, all.length);
+        }
+        @Override
+        public void parsed(final int length, final int directives,
+            final long nanos) {
+            for (final Trace trace : this.traces) {
+                trace.parsed(length, directives, nanos);
+            }
+        }
+        @Override
+        public void executed(final Directive dir, final int cursor,
+            final long nanos) {
+            for (final Trace trace : this.traces) {
+                trace.executed(dir, cursor, nanos);
+            }
+        }
+        @Override
+        public void failed(final Directive dir,
+            final ImpossibleModificationException cause) {
+            for (final Trace trace : this.traces) {
+                trace.failed(dir, cause);
+            }
+        }
+        @Override
+        public void applied(final int directives, final int nodes,
+            final long nanos) {
+            for (final Trace trace : this.traces) {
+                trace.applied(directives, nodes, nanos);
+            }
+        }
+        @Override
+        public void serialized(final int length, final long nanos) {
+            for (final Trace trace : this.traces) {
+                trace.serialized(length, nanos);
+            }
+        }
+    }
+
+}
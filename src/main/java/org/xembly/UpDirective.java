@@ -44,13 +44,28 @@ import org.w3c.dom.Node;
  * @since 0.1
  */
 @EqualsAndHashCode
-final class UpDirective implements Directive {
+final class UpDirective implements Directive, Encodable {
+
+    /**
+     * The only instance needed, since the directive has no state.
+     */
+    static final UpDirective INSTANCE = new UpDirective();
 
     @Override
     public String toString() {
         return "UP";
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.UP;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[0];
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack)
@@ -29,8 +29,12 @@
  */
 package org.xembly;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
@@ -99,6 +103,17 @@ public final class Xembler {
     private static final TransformerFactory TFACTORY =
         TransformerFactory.newInstance();
 
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Maximum number of directives in a block, which is executed once
+     * and then cloned to all nodes of the cursor.
+     */
+    private static final int MAX_BLOCK = 1024;
+
     /**
      * Array of directives.
      */
@@ -140,35 +155,76 @@ public final class Xembler {
 
     /**
      * Apply all changes to the document/node.
+     *
+     * <p>When there are many nodes under the cursor and the next
+     * directives only build a new subtree under each of them, like
+     * {@code ADD 'td'; ATTR 'class', 'x'; SET 'y'; UP;}, the subtree is
+     * built once, under the first node, and its deep clones are appended
+     * to all other nodes.
+     *
      * @param dom DOM document/node
      * @return The same document/node
      * @throws ImpossibleModificationException If can't modify
      */
     public Node apply(final Node dom) throws ImpossibleModificationException {
+        final Trace trace = Traces.current();
+        final long start = System.nanoTime();
         Directive.Cursor cursor = new DomCursor(
             Collections.singletonList(dom)
         );
         int pos = 1;
+        int nodes = 0;
         final Directive.Stack stack = new DomStack();
-        for (final Directive dir : this.directives) {
-            try {
-                cursor = dir.exec(dom, cursor, stack);
-            } catch (final ImpossibleModificationException ex) {
-                throw new ImpossibleModificationException(
-                    String.format("directive #%d: %s", pos, dir),
-                    ex
-                );
-            } catch (final DOMException ex) {
-                throw new ImpossibleModificationException(
-                    String.format("DOM exception at dir #%d: %s", pos, dir),
-                    ex
+        final Iterator<Directive> dirs = this.directives.iterator();
+        final LinkedList<Directive> pending = new LinkedList<Directive>();
+        while (!pending.isEmpty() || dirs.hasNext()) {
+            if (pending.isEmpty()) {
+                final Directive dir = dirs.next();
+                pending.add(dir);
+                if (cursor.size() > 1 && dir instanceof AddDirective
+                    && Xembler.block(dirs, pending)) {
+                    Xembler.replicate(pending, dom, cursor, stack, pos, trace);
+                    pos += pending.size();
+                    if (trace != null) {
+                        nodes += cursor.size() * pending.size();
+                    }
+                    pending.clear();
+                }
+            }
+            if (!pending.isEmpty()) {
+                cursor = Xembler.exec(
+                    pending.removeFirst(), dom, cursor, stack, pos, trace
                 );
+                if (trace != null) {
+                    nodes += cursor.size();
+                }
+                ++pos;
             }
-            ++pos;
+        }
+        if (trace != null) {
+            trace.applied(pos - 1, nodes, System.nanoTime() - start);
         }
         return dom;
     }
 
+    /**
+     * Apply all changes to the document/node and measure every directive.
+     *
+     * <p>This is much slower than {@link #apply(Node)}, use it only to find
+     * out which directives of a script are the most expensive ones.
+     *
+     * @param dom DOM document/node
+     * @return Profile of the script
+     * @throws ImpossibleModificationException If can't modify
+     * @since 0.23
+     */
+    public Profile profile(final Node dom)
+        throws ImpossibleModificationException {
+        final Profile profile = new Profile(this.directives);
+        profile.apply(dom);
+        return profile;
+    }
+
     /**
      * Apply all changes to an empty DOM, without checked exceptions.
      * @return DOM created
@@ -252,9 +308,12 @@ public final class Xembler {
         transformer.setOutputProperty(OutputKeys.INDENT, "yes");
         transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
         final StringWriter writer = new StringWriter();
+        final Document dom = this.dom();
+        final Trace trace = Traces.current();
+        final long start = System.nanoTime();
         try {
             transformer.transform(
-                new DOMSource(this.dom()),
+                new DOMSource(dom),
                 new StreamResult(writer)
             );
         } catch (final TransformerException ex) {
@@ -266,7 +325,152 @@ public final class Xembler {
                 ex
             );
         }
-        return writer.toString();
+        final String xml = writer.toString();
+        if (trace != null) {
+            trace.serialized(xml.length(), System.nanoTime() - start);
+        }
+        return xml;
+    }
+
+    /**
+     * Execute one directive.
+     * @param dir The directive
+     * @param dom DOM document/node
+     * @param cursor Current cursor
+     * @param stack Stack
+     * @param pos Position of the directive in the script
+     * @param trace Trace or NULL
+     * @return New cursor
+     * @throws ImpossibleModificationException If can't modify
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static Directive.Cursor exec(final Directive dir, final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack,
+        final int pos, final Trace trace)
+        throws ImpossibleModificationException {
+        final Directive.Cursor next;
+        try {
+            if (trace == null) {
+                next = dir.exec(dom, cursor, stack);
+            } else {
+                final long begin = System.nanoTime();
+                next = dir.exec(dom, cursor, stack);
+                trace.executed(dir, cursor.size(), System.nanoTime() - begin);
+            }
+        } catch (final ImpossibleModificationException ex) {
+            throw Xembler.failure(
+                trace, dir,
+                new ImpossibleModificationException(
+                    String.format("directive #%d: %s", pos, dir),
+                    ex
+                )
+            );
+        } catch (final DOMException ex) {
+            throw Xembler.failure(
+                trace, dir,
+                new ImpossibleModificationException(
+                    String.format("DOM exception at dir #%d: %s", pos, dir),
+                    ex
+                )
+            );
+        }
+        return next;
+    }
+
+    /**
+     * Read the rest of a block, which starts with ADD and ends with
+     * the UP that brings the cursor back to where the block started.
+     *
+     * <p>The block must not read the document and may only modify
+     * the nodes it creates, which is true for ADD, ATTR, SET, APPEND,
+     * CDATA, XML and GRAFT. Everything read is added to the list, even if
+     * it's not a block.
+     *
+     * @param dirs Directives to read from
+     * @param block The block, with its first ADD
+     * @return TRUE if it's a complete block
+     */
+    private static boolean block(final Iterator<Directive> dirs,
+        final List<Directive> block) {
+        int depth = 1;
+        boolean pure = true;
+        while (pure && depth > 0 && block.size() < Xembler.MAX_BLOCK
+            && dirs.hasNext()) {
+            final Directive dir = dirs.next();
+            block.add(dir);
+            if (dir instanceof UpDirective) {
+                --depth;
+            } else if (dir instanceof AddDirective) {
+                ++depth;
+            } else {
+                pure = dir instanceof AttrDirective
+                    || dir instanceof SetDirective
+                    || dir instanceof AppendDirective
+                    || dir instanceof CdataDirective
+                    || dir instanceof XmlDirective
+                    || dir instanceof GraftDirective;
+            }
+        }
+        return pure && depth == 0;
+    }
+
+    /**
+     * Execute the block on the first node of the cursor and append
+     * deep clones of the node it creates to all other nodes.
+     * @param block The block
+     * @param dom DOM document/node
+     * @param cursor Current cursor, with more than one node
+     * @param stack Stack
+     * @param pos Position of the first directive of the block
+     * @param trace Trace or NULL
+     * @throws ImpossibleModificationException If can't modify
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static void replicate(final List<Directive> block,
+        final Node dom, final Directive.Cursor cursor,
+        final Directive.Stack stack, final int pos, final Trace trace)
+        throws ImpossibleModificationException {
+        final Iterator<Node> targets = cursor.iterator();
+        final Node first = targets.next();
+        Directive.Cursor local = new DomCursor(
+            Collections.singletonList(first)
+        );
+        int idx = pos;
+        for (final Directive dir : block) {
+            local = Xembler.exec(dir, dom, local, stack, idx, trace);
+            ++idx;
+        }
+        final Node made = first.getLastChild();
+        try {
+            while (targets.hasNext()) {
+                targets.next().appendChild(made.cloneNode(true));
+            }
+        } catch (final DOMException ex) {
+            throw Xembler.failure(
+                trace, block.get(0),
+                new ImpossibleModificationException(
+                    String.format(
+                        "DOM exception at dir #%d: %s", pos, block.get(0)
+                    ),
+                    ex
+                )
+            );
+        }
+    }
+
+    /**
+     * Report a failure to the trace, if it's attached.
+     * @param trace Trace or NULL
+     * @param dir Directive that failed
+     * @param cause The problem
+     * @return The same problem
+     */
+    private static ImpossibleModificationException failure(final Trace trace,
+        final Directive dir, final ImpossibleModificationException cause) {
+        if (trace != null) {
+            trace.failed(dir, cause);
+        }
+        return cause;
     }
 
     /**
@@ -278,29 +482,69 @@ public final class Xembler {
      * <pre>new Directives().xpath("/test")
      *   .set(Xembler.escape("illegal: \u0000"));</pre>
      *
+     * <p>If there is nothing to escape, the same string is returned.
+     *
      * @param text Text to escape
      * @return The same text with escaped characters, which are not XML-legal
      * @since 0.14
-     * @checkstyle MagicNumber (20 lines)
-     * @checkstyle CyclomaticComplexity (20 lines)
-     * @checkstyle BooleanExpressionComplexity (20 lines)
      */
     public static String escape(final String text) {
-        final StringBuilder output = new StringBuilder(text.length());
-        final char[] chars = text.toCharArray();
-        for (final char chr : chars) {
-            final boolean illegal = chr >= 0x00 && chr <= 0x08
-                || chr >= 0x0B && chr <= 0x0C
-                || chr >= 0x0E && chr <= 0x1F
-                || chr >= 0x7F && chr <= 0x84
-                || chr >= 0x86 && chr <= 0x9F;
-            if (illegal) {
-                output.append(String.format("\\u%04x", (int) chr));
-            } else {
-                output.append(chr);
+        final int len = text.length();
+        int first = 0;
+        while (first < len && !Arg.illegal(text.charAt(first))) {
+            ++first;
+        }
+        final String escaped;
+        if (first == len) {
+            escaped = text;
+        } else {
+            // @checkstyle MagicNumber (1 line)
+            final StringBuilder output = new StringBuilder(len + 16);
+            output.append(text, 0, first);
+            try {
+                Xembler.escape(text.subSequence(first, len), output);
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
             }
+            escaped = output.toString();
+        }
+        return escaped;
+    }
+
+    /**
+     * Escape text, which is not XML-legal, writing it to the output.
+     *
+     * <p>Legal characters are appended in runs, as long as possible,
+     * without any intermediate buffers. It's the same as
+     * {@link #escape(String)}, but for large texts.
+     *
+     * @param text Text to escape
+     * @param output Where to write the escaped text
+     * @throws IOException If fails to write
+     * @since 0.23
+     * @checkstyle MagicNumber (20 lines)
+     */
+    public static void escape(final CharSequence text, final Appendable output)
+        throws IOException {
+        final int len = text.length();
+        int start = 0;
+        for (int idx = 0; idx < len; ++idx) {
+            final char chr = text.charAt(idx);
+            if (Arg.illegal(chr)) {
+                if (idx > start) {
+                    output.append(text, start, idx);
+                }
+                output.append('\\').append('u')
+                    .append(Xembler.HEX[chr >> 12 & 0xF])
+                    .append(Xembler.HEX[chr >> 8 & 0xF])
+                    .append(Xembler.HEX[chr >> 4 & 0xF])
+                    .append(Xembler.HEX[chr & 0xF]);
+                start = idx + 1;
+            }
+        }
+        if (len > start) {
+            output.append(text, start, len);
         }
-        return output.toString();
     }
 
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.io.IOException;
+import java.io.StringReader;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import lombok.EqualsAndHashCode;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * XML directive.
+ *
+ * <p>The fragment is parsed once, when the directive is created, and
+ * then a deep copy of it is appended to every current node. The parser
+ * is namespace aware, like the one of {@link Xembler}, so every prefix
+ * in the fragment has to be declared in it.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+@EqualsAndHashCode(of = "value")
+final class XmlDirective implements Directive, Encodable {
+
+    /**
+     * Builder factory.
+     */
+    private static final DocumentBuilderFactory BFACTORY =
+        DocumentBuilderFactory.newInstance();
+
+    /**
+     * XML fragment, as a text.
+     */
+    private final transient Arg value;
+
+    /**
+     * Parsed fragment.
+     */
+    private final transient DocumentFragment fragment;
+
+    static {
+        XmlDirective.BFACTORY.setNamespaceAware(true);
+        XmlDirective.BFACTORY.setValidating(false);
+        XmlDirective.BFACTORY.setCoalescing(false);
+    }
+
+    /**
+     * Public ctor.
+     * @param xml XML fragment
+     * @throws XmlContentException If invalid input
+     */
+    XmlDirective(final String xml) throws XmlContentException {
+        this(new Arg(xml));
+    }
+
+    /**
+     * Public ctor.
+     * @param xml XML fragment
+     * @throws XmlContentException If it's not a well-formed fragment
+     */
+    XmlDirective(final Arg xml) throws XmlContentException {
+        this.value = xml;
+        this.fragment = XmlDirective.parse(xml.raw());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("XML %s", this.value);
+    }
+
+    @Override
+    public Opcode opcode() {
+        return Opcode.XML;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.value};
+    }
+
+    @Override
+    public Directive.Cursor exec(final Node dom,
+        final Directive.Cursor cursor, final Directive.Stack stack) {
+        final Document doc;
+        if (dom.getOwnerDocument() == null) {
+            doc = Document.class.cast(dom);
+        } else {
+            doc = dom.getOwnerDocument();
+        }
+        synchronized (this.fragment) {
+            for (final Node node : cursor) {
+                node.appendChild(doc.importNode(this.fragment, true));
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Parse XML fragment.
+     * @param xml The fragment
+     * @return Parsed fragment, with all its top level nodes
+     * @throws XmlContentException If it's not well-formed
+     */
+    private static DocumentFragment parse(final String xml)
+        throws XmlContentException {
+        final Document doc;
+        try {
+            final DocumentBuilder builder =
+                XmlDirective.BFACTORY.newDocumentBuilder();
+            builder.setErrorHandler(new DefaultHandler());
+            doc = builder.parse(
+                new InputSource(
+                    new StringReader(
+                        String.format("<xembly>%s</xembly>", xml)
+                    )
+                )
+            );
+        } catch (final ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        } catch (final SAXException ex) {
+            throw new XmlContentException(
+                String.format("XML fragment is not well-formed: %s", xml),
+                ex
+            );
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final Node root = doc.getDocumentElement();
+        final DocumentFragment frag = doc.createDocumentFragment();
+        while (root.hasChildNodes()) {
+            frag.appendChild(root.getFirstChild());
+        }
+        return frag;
+    }
+
+}
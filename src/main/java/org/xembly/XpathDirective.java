@@ -53,7 +53,7 @@ import org.w3c.dom.NodeList;
  * @since 0.1
  */
 @EqualsAndHashCode(of = "expr")
-final class XpathDirective implements Directive {
+final class XpathDirective implements Directive, Encodable {
 
     /**
      * XPath factory.
@@ -77,7 +77,16 @@ final class XpathDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     XpathDirective(final String path) throws XmlContentException {
-        this.expr = new Arg(path);
+        this(ArgPool.SHARED.get(path));
+    }
+
+    /**
+     * Public ctor.
+     * @param path XPath
+     * @since 0.23
+     */
+    XpathDirective(final Arg path) {
+        this.expr = path;
     }
 
     @Override
@@ -85,6 +94,16 @@ final class XpathDirective implements Directive {
         return String.format("XPATH %s", this.expr);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.XPATH;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.expr};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack)
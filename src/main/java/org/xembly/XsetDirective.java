@@ -49,7 +49,7 @@ import org.w3c.dom.Node;
  * @since 0.1
  */
 @EqualsAndHashCode(of = "expr")
-final class XsetDirective implements Directive {
+final class XsetDirective implements Directive, Encodable {
 
     /**
      * XPath factory.
@@ -67,7 +67,16 @@ final class XsetDirective implements Directive {
      * @throws XmlContentException If invalid input
      */
     XsetDirective(final String val) throws XmlContentException {
-        this.expr = new Arg(val);
+        this(ArgPool.SHARED.get(val));
+    }
+
+    /**
+     * Public ctor.
+     * @param val Text value to set
+     * @since 0.23
+     */
+    XsetDirective(final Arg val) {
+        this.expr = val;
     }
 
     @Override
@@ -75,6 +84,16 @@ final class XsetDirective implements Directive {
         return String.format("XSET %s", this.expr);
     }
 
+    @Override
+    public Opcode opcode() {
+        return Opcode.XSET;
+    }
+
+    @Override
+    public Arg[] args() {
+        return new Arg[] {this.expr};
+    }
+
     @Override
     public Directive.Cursor exec(final Node dom,
         final Directive.Cursor cursor, final Directive.Stack stack)
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Test case for {@link AppendDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class AppendDirectiveTest {
+
+    /**
+     * AppendDirective can append text after the text already there.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appendsTextAfterExistingText() throws Exception {
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        new Xembler(
+            new Directives("ADD 'log'; SET 'a'; APPEND 'b'; APPEND 'c';")
+        ).apply(dom);
+        MatcherAssert.assertThat(
+            dom.getDocumentElement().getChildNodes().getLength(),
+            Matchers.equalTo(Tv.THREE)
+        );
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(dom),
+            XhtmlMatchers.hasXPath("/log[.='abc']")
+        );
+    }
+
+    /**
+     * AppendDirective can append text after an element.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appendsTextAfterElement() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives().add("p").appendText("hello, ")
+                    .add("b").set("world").up()
+                    .appendText(new StringBuilder("!"))
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/p[b='world']",
+                "/p[text()[1]='hello, ' and text()[2]='!']"
+            )
+        );
+    }
+
+    /**
+     * AppendDirective can append many chunks in linear time.
+     *
+     * <p>The text has a hundred thousand chunks. If every chunk copied
+     * the text collected before it, the test would take minutes.
+     *
+     * @throws Exception If some problem inside
+     */
+    @Test(timeout = Tv.TEN * Tv.THOUSAND)
+    public void appendsManyChunksInLinearTime() throws Exception {
+        final int total = Tv.HUNDRED * Tv.THOUSAND;
+        final Directive chunk = new AppendDirective(
+            StringUtils.repeat('x', Tv.HUNDRED)
+        );
+        final Collection<Directive> dirs = new ArrayList<Directive>(total);
+        dirs.add(new AddDirective("log"));
+        dirs.addAll(Collections.nCopies(total, chunk));
+        MatcherAssert.assertThat(
+            new Xembler(dirs).dom().getFirstChild().getTextContent().length(),
+            Matchers.equalTo(total * Tv.HUNDRED)
+        );
+    }
+
+}
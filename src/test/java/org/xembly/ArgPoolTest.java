@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ArgPool}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class ArgPoolTest {
+
+    /**
+     * ArgPool can share equal arguments.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sharesEqualArguments() throws Exception {
+        final ArgPool pool = new ArgPool(Tv.TEN, Tv.HUNDRED);
+        final Arg first = pool.get("book");
+        MatcherAssert.assertThat(
+            pool.get(new StringBuilder("bo").append("ok").toString()),
+            Matchers.sameInstance(first)
+        );
+        MatcherAssert.assertThat(first.raw(), Matchers.equalTo("book"));
+    }
+
+    /**
+     * ArgPool can skip long arguments.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void skipsLongArguments() throws Exception {
+        final ArgPool pool = new ArgPool(2, Tv.HUNDRED);
+        final Arg arg = pool.get("long");
+        MatcherAssert.assertThat(
+            pool.get("long"),
+            Matchers.not(Matchers.sameInstance(arg))
+        );
+    }
+
+    /**
+     * ArgPool can reject invalid arguments.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = XmlContentException.class)
+    public void rejectsInvalidArguments() throws Exception {
+        ArgPool.SHARED.get("\u0000");
+    }
+
+}
@@ -79,4 +79,61 @@ public final class ArgTest {
         Arg.unescape("&#27;&#0000;");
     }
 
+    /**
+     * Arg can unescape hexadecimal symbols.
+     * @throws Exception If some problem inside
+     * @since 0.23
+     */
+    @Test
+    public void unescapesHexadecimalSymbols() throws Exception {
+        MatcherAssert.assertThat(
+            Arg.unescape("'&#x41;&#X62;&#67;&AMP;'"),
+            Matchers.equalTo("AbC&")
+        );
+    }
+
+    /**
+     * Arg can reject broken numeric symbols.
+     * @throws Exception If some problem inside
+     * @since 0.23
+     */
+    @Test(expected = XmlContentException.class)
+    public void rejectsBrokenNumericSymbols() throws Exception {
+        Arg.unescape("'&#xZZ;'");
+    }
+
+    /**
+     * Arg can render the same escaped text many times.
+     * @throws Exception If some problem inside
+     * @since 0.23
+     */
+    @Test
+    public void cachesEscapedText() throws Exception {
+        final Arg arg = new Arg("a < b");
+        MatcherAssert.assertThat(
+            arg.toString(),
+            Matchers.allOf(
+                Matchers.equalTo("\"a &lt; b\""),
+                Matchers.sameInstance(arg.toString())
+            )
+        );
+    }
+
+    /**
+     * Arg can make arguments of numbers and booleans.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void makesTypedArguments() throws Exception {
+        MatcherAssert.assertThat(Arg.of(1L), Matchers.equalTo(new Arg("1")));
+        MatcherAssert.assertThat(
+            Arg.of(-1.5).toString(),
+            Matchers.equalTo("\"-1.5\"")
+        );
+        MatcherAssert.assertThat(
+            Arg.of(false).raw(),
+            Matchers.equalTo("false")
+        );
+    }
+
 }
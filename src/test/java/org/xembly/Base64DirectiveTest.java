@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Node;
+
+/**
+ * Test case for {@link Base64Directive}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class Base64DirectiveTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Base64Directive can encode bytes from a stream.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void encodesBytesFromStream() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives()
+                    .add("bin").base64(Base64DirectiveTest.stream("hello"))
+                    .up()
+                    .add("one").base64(Base64DirectiveTest.stream("a"))
+                    .up()
+                    .add("empty").base64(Base64DirectiveTest.stream(""))
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/bin[.='aGVsbG8=']",
+                "/bin/one[.='YQ==']",
+                "/bin/one/empty[.='']"
+            )
+        );
+    }
+
+    /**
+     * Base64Directive can encode a buffer without moving its position.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void encodesBufferWithoutMovingPosition() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.wrap("Xembly".getBytes("UTF-8"));
+        final Xembler xembler = new Xembler(
+            new Directives().add("data").base64(buffer)
+        );
+        xembler.xml();
+        MatcherAssert.assertThat(
+            xembler.xml(),
+            XhtmlMatchers.hasXPath("/data[.='WGVtYmx5']")
+        );
+        MatcherAssert.assertThat(buffer.position(), Matchers.equalTo(0));
+    }
+
+    /**
+     * Base64Directive can encode a file.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void encodesFile() throws Exception {
+        final File file = this.temp.newFile();
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(new byte[] {0, -1, 1});
+        } finally {
+            output.close();
+        }
+        MatcherAssert.assertThat(
+            new Xembler(new Directives().add("file").base64(file)).xml(),
+            XhtmlMatchers.hasXPath("/file[.='AP8B']")
+        );
+    }
+
+    /**
+     * Base64Directive can refuse to consume a stream twice.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void refusesToReadTwice() throws Exception {
+        final Xembler xembler = new Xembler(
+            new Directives().add("doc")
+                .base64(Base64DirectiveTest.stream("once"))
+        );
+        xembler.xml();
+        xembler.xml();
+    }
+
+    /**
+     * Base64Directive can write every chunk as a separate text node.
+     * @throws Exception If some problem inside
+     * @checkstyle MagicNumber (20 lines)
+     */
+    @Test
+    public void writesEveryChunkAsTextNode() throws Exception {
+        final Node doc = new Xembler(
+            new Directives().add("doc").set("old")
+                .base64(ByteBuffer.allocate(Tv.TEN * Tv.THOUSAND))
+        ).dom().getDocumentElement();
+        MatcherAssert.assertThat(
+            doc.getChildNodes().getLength(),
+            Matchers.equalTo(2)
+        );
+        MatcherAssert.assertThat(
+            doc.getTextContent(),
+            Matchers.equalTo(
+                String.format("%s==", StringUtils.repeat('A', 13334))
+            )
+        );
+    }
+
+    /**
+     * Make a stream of a text.
+     * @param text The text
+     * @return Stream of its bytes
+     * @throws Exception If some problem inside
+     */
+    private static InputStream stream(final String text) throws Exception {
+        return new ByteArrayInputStream(text.getBytes("UTF-8"));
+    }
+
+}
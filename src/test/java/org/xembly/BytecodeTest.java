@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.nio.ByteBuffer;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Bytecode}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class BytecodeTest {
+
+    /**
+     * Bytecode can encode and decode directives.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void encodesAndDecodes() throws Exception {
+        final Directives dirs = new Directives(
+            "ADD 'root'; ATTR 'a', '€'; ADD 'x'; SET '&lt;1&gt;'; UP; "
+            + "STRICT '1'; PUSH; XPATH '/root'; POP; CDATA 'c'; ADDIF 'x';"
+        );
+        MatcherAssert.assertThat(
+            new Directives(new Bytecode(Bytecode.encode(dirs))).toString(),
+            Matchers.equalTo(dirs.toString())
+        );
+    }
+
+    /**
+     * Bytecode can be applied directly from a direct buffer.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appliesFromDirectBuffer() throws Exception {
+        final byte[] bytes = Bytecode.encode(
+            new Directives().add("page").add("title").set("hello")
+        );
+        final ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes);
+        buf.flip();
+        MatcherAssert.assertThat(
+            new Xembler(new Bytecode(buf)).xml(),
+            XhtmlMatchers.hasXPath("/page/title[.='hello']")
+        );
+    }
+
+    /**
+     * Bytecode can store repeated arguments only once.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void storesRepeatedArgumentsOnce() throws Exception {
+        final Directives dirs = new Directives().add("root");
+        for (int idx = 0; idx < Tv.HUNDRED; ++idx) {
+            dirs.add("some-long-element-name").attr("some-attribute", "v")
+                .up();
+        }
+        MatcherAssert.assertThat(
+            Bytecode.encode(dirs).length,
+            Matchers.lessThan(dirs.toString().length() / Tv.TEN)
+        );
+    }
+
+    /**
+     * Bytecode can reject broken bytes.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBrokenBytes() throws Exception {
+        new Bytecode(new byte[] {1, 2, 3});
+    }
+
+    /**
+     * Bytecode can reject a negative size of the table.
+     * @throws Exception If some problem inside
+     * @checkstyle MagicNumber (10 lines)
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeTableSize() throws Exception {
+        new Bytecode(
+            new byte[] {
+                Bytecode.VERSION, 'X', 'M', 'B', -1, -1, -1, -1, 0x0F,
+            }
+        );
+    }
+
+    /**
+     * Bytecode can reject a negative index of an argument.
+     * @throws Exception If some problem inside
+     * @checkstyle MagicNumber (15 lines)
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeArgumentIndex() throws Exception {
+        new Bytecode(
+            new byte[] {
+                Bytecode.VERSION, 'X', 'M', 'B', 1, 1, 'a', 1,
+                (byte) Opcode.ADD.ordinal(), -1, -1, -1, -1, 0x0F,
+            }
+        ).iterator().next();
+    }
+
+}
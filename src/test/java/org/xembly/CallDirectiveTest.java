@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link CallDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class CallDirectiveTest {
+
+    /**
+     * CallDirective can execute a defined block.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void executesDefinedBlock() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Prepared(
+                    // @checkstyle StringLiteralsConcatenation (3 lines)
+                    "DEF 'money'; ATTR 'currency', 'USD'; SET $sum; END;"
+                    + "ADD 'order'; ADD 'price'; CALL 'money'; UP;"
+                    + "ADD 'tax'; CALL 'money';"
+                ).bind(Collections.singletonMap("sum", "9.99"))
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/order/price[@currency='USD' and .='9.99']",
+                "/order/tax[@currency='USD' and .='9.99']"
+            )
+        );
+    }
+
+    /**
+     * CallDirective can be made by the builder.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void callsBuiltBlock() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives()
+                    .def("row", new Directives().add("td").up().add("td").up())
+                    .add("tr").call("row").call("row")
+            ).xml(),
+            XhtmlMatchers.hasXPath("/tr[count(td) = 4]")
+        );
+    }
+
+    /**
+     * CallDirective can print the script back.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void printsDefinitionBack() throws Exception {
+        MatcherAssert.assertThat(
+            new Directives("DEF 'x'; ADD 'y'; UP; END; CALL 'x';"),
+            Matchers.hasToString("DEF \"x\";ADD \"y\";UP;END;CALL \"x\";")
+        );
+    }
+
+    /**
+     * CallDirective can reject a block not defined.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = SyntaxException.class)
+    public void rejectsBlockNotDefined() throws Exception {
+        new Directives("CALL 'nothing';");
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.xml.XMLDocument;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Test case for {@link CopyOf}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class CopyOfTest {
+
+    /**
+     * CopyOf can generate directives in document order.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void generatesDirectivesInOrder() throws Exception {
+        MatcherAssert.assertThat(
+            new Directives(
+                new CopyOf(
+                    new XMLDocument(
+                        "<a x='1'><b>hi</b><?p d?><!-- no --><c/></a>"
+                    ).node()
+                )
+            ),
+            Matchers.hasToString(
+                // @checkstyle LineLength (1 line)
+                "ADD \"a\";ATTR \"x\", \"1\";ADD \"b\";SET \"hi\";UP;PI \"p\", \"d\";ADD \"c\";UP;UP;"
+            )
+        );
+    }
+
+    /**
+     * CopyOf can print itself as a script.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void printsItselfAsScript() throws Exception {
+        MatcherAssert.assertThat(
+            Directives.copyOf(new XMLDocument("<a><b>hi</b></a>").node()),
+            Matchers.hasToString("ADD \"a\";ADD \"b\";SET \"hi\";UP;UP;")
+        );
+    }
+
+    /**
+     * CopyOf can walk through a very deep tree.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public void walksThroughDeepTree() throws Exception {
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        Node node = dom;
+        final int depth = Tv.TEN * Tv.THOUSAND;
+        for (int idx = 0; idx < depth; ++idx) {
+            node = node.appendChild(dom.createElement("x"));
+        }
+        int total = 0;
+        for (final Directive dir : new CopyOf(dom)) {
+            ++total;
+        }
+        MatcherAssert.assertThat(total, Matchers.equalTo(depth * 2));
+    }
+
+    /**
+     * CopyOf can reject mixed content while iterating.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMixedContent() throws Exception {
+        final Iterable<Directive> dirs = new CopyOf(
+            new XMLDocument("<p>hello, <b>world</b></p>").node()
+        );
+        for (final Directive dir : dirs) {
+            MatcherAssert.assertThat(dir, Matchers.notNullValue());
+        }
+    }
+
+}
@@ -319,4 +319,32 @@ public final class DirectivesTest {
         );
     }
 
+    /**
+     * Directives can set numbers, booleans and characters.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void setsPrimitiveValues() throws Exception {
+        final Directives dirs = new Directives()
+            .add("row").attr("id", Tv.FIVE).attr("ok", true).attr("c", 'x')
+            .add("long").set(Long.MIN_VALUE).up()
+            .add("float").set(0.1f).up()
+            .add("double").set(-2.5).up()
+            .add("char").set('y');
+        MatcherAssert.assertThat(
+            new Xembler(dirs).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/row[@id='5' and @ok='true' and @c='x']",
+                "/row/long[.='-9223372036854775808']",
+                "/row/float[.='0.1']",
+                "/row/double[.='-2.5']",
+                "/row/char[.='y']"
+            )
+        );
+        MatcherAssert.assertThat(
+            new Directives(dirs.toString()),
+            Matchers.equalTo(dirs)
+        );
+    }
+
 }
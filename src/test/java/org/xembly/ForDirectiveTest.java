@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ForDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class ForDirectiveTest {
+
+    /**
+     * ForDirective can repeat a block for every item.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void repeatsBlockForEveryItem() throws Exception {
+        final Map<String, Object> first = new HashMap<String, Object>(0);
+        first.put("id", 1);
+        first.put("cells", new String[] {"a", "b"});
+        final Map<String, Object> second = new HashMap<String, Object>(0);
+        second.put("id", 2);
+        second.put("cells", Collections.singletonList("c"));
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Prepared(
+                    // @checkstyle StringLiteralsConcatenation (4 lines)
+                    "ADD 'table'; FOR $row IN $rows; ADD 'tr';"
+                    + "ATTR 'id', $row.id; FOR $cell IN $row.cells;"
+                    + "ADD 'td'; SET $cell; UP; END; END;"
+                    + "ADD 'end';"
+                ).bind(
+                    Collections.singletonMap(
+                        "rows", Arrays.asList(first, second)
+                    )
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/table[count(tr) = 2 and end]",
+                "/table/tr[@id=1 and td[1]='a' and td[2]='b']",
+                "/table/tr[@id=2 and count(td) = 1 and td='c']"
+            )
+        );
+    }
+
+    /**
+     * ForDirective can be made by the builder.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void repeatsBuiltBlock() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives().add("list").each(
+                    "item", Arrays.asList("x", "y", "z"),
+                    new Directives("ADD 'item'; SET $item;")
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/list[count(item) = 3]",
+                "/list/item[3][.='z']"
+            )
+        );
+    }
+
+    /**
+     * ForDirective can reject a collection not bound.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void rejectsCollectionNotBound() throws Exception {
+        new Xembler(
+            new Directives("ADD 'x'; FOR $i IN $list; ADD 'y'; END;")
+        ).xml();
+    }
+
+    /**
+     * ForDirective can reject a NULL item.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void rejectsNullItem() throws Exception {
+        new Xembler(
+            new Directives().add("x").each(
+                "v", Arrays.asList("a", null),
+                new Directives("ADD 'y'; SET $v; UP;")
+            )
+        ).xml();
+    }
+
+    /**
+     * ForDirective can print the collection named after the item.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void printsCollectionNamedAfterItem() throws Exception {
+        MatcherAssert.assertThat(
+            new Directives().each(
+                "row", Collections.emptyList(), new Directives().add("tr")
+            ),
+            Matchers.hasToString("FOR $row IN $rows;ADD \"tr\";END;")
+        );
+    }
+
+}
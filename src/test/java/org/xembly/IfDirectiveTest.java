@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link IfDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class IfDirectiveTest {
+
+    /**
+     * IfDirective can execute blocks on matching and other nodes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void executesBlocksOnMatchingNodes() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives(
+                    StringUtils.join(
+                        "ADD 'books'; ADD 'book'; ADD 'price'; UP; UP;",
+                        "ADD 'book'; UP; XPATH 'book'; IF 'not(price)';",
+                        "ADD 'price'; SET '0'; ELSE; XPATH 'price';",
+                        "ATTR 'ok', 'yes'; END; ATTR 'seen', 'true';"
+                    )
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/books[count(book[@seen='true']) = 2]",
+                "/books/book[1]/price[@ok='yes']",
+                "/books/book[2][price='0']"
+            )
+        );
+    }
+
+    /**
+     * IfDirective can test the document, when there is no cursor.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void testsDocumentWithoutCursor() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives()
+                    .when("not(/*)", new Directives().add("root"))
+                    .when("/boom", new Directives().add("boom"))
+            ).xml(),
+            XhtmlMatchers.hasXPath("/root[not(boom)]")
+        );
+    }
+
+}
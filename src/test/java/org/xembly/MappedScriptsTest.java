@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Parallel;
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Callable;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link MappedScripts}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class MappedScriptsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * MappedScripts can reuse scripts compiled by another instance.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void reusesCompiledScripts() throws Exception {
+        final File file = this.temp.newFile();
+        final String script = "ADD 'root'; ADD 'x'; SET 'hello';";
+        final MappedScripts first = new MappedScripts(file);
+        try {
+            first.get(script);
+        } finally {
+            first.close();
+        }
+        final MappedScripts second = new MappedScripts(file);
+        try {
+            MatcherAssert.assertThat(second.size(), Matchers.equalTo(1));
+            MatcherAssert.assertThat(
+                new Xembler(second.get(script)).xml(),
+                XhtmlMatchers.hasXPath("/root/x[.='hello']")
+            );
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * MappedScripts can drop a broken entry.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void dropsBrokenEntries() throws Exception {
+        final File file = this.temp.newFile();
+        final MappedScripts first = new MappedScripts(file);
+        try {
+            first.get("ADD 'a';");
+            first.get("ADD 'b';");
+        } finally {
+            first.close();
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 1L);
+        } finally {
+            raf.close();
+        }
+        final MappedScripts second = new MappedScripts(file);
+        try {
+            MatcherAssert.assertThat(second.size(), Matchers.equalTo(1));
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * MappedScripts can start from scratch when the header is wrong.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void resetsFileWithWrongHeader() throws Exception {
+        final File file = this.temp.newFile();
+        final MappedScripts first = new MappedScripts(file);
+        try {
+            first.get("ADD 'c';");
+        } finally {
+            first.close();
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(Tv.FIVE);
+            raf.write(Tv.NINE);
+        } finally {
+            raf.close();
+        }
+        final MappedScripts second = new MappedScripts(file);
+        try {
+            MatcherAssert.assertThat(second.size(), Matchers.equalTo(0));
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * MappedScripts can return scripts which can't be encoded.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void returnsScriptsWhichCantBeEncoded() throws Exception {
+        final MappedScripts scripts = new MappedScripts(this.temp.newFile());
+        try {
+            MatcherAssert.assertThat(
+                new Xembler(
+                    scripts.get("ADD 'r'; IF 'true()'; ADD 'yes'; END;")
+                ).xml(),
+                XhtmlMatchers.hasXPath("/r/yes")
+            );
+            MatcherAssert.assertThat(scripts.size(), Matchers.equalTo(0));
+        } finally {
+            scripts.close();
+        }
+    }
+
+    /**
+     * MappedScripts can write a script only once, when many threads
+     * request it at the same time.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void writesScriptOnce() throws Exception {
+        final String script = "ADD 'once';";
+        final File single = this.temp.newFile();
+        final MappedScripts first = new MappedScripts(single);
+        try {
+            first.get(script);
+        } finally {
+            first.close();
+        }
+        final File file = this.temp.newFile();
+        final MappedScripts scripts = new MappedScripts(file);
+        try {
+            new Callable<Void>() {
+                @Parallel(threads = Tv.FIFTY)
+                @Override
+                public Void call() throws Exception {
+                    scripts.get(script);
+                    return null;
+                }
+            } .call();
+        } finally {
+            scripts.close();
+        }
+        MatcherAssert.assertThat(
+            file.length(),
+            Matchers.equalTo(single.length())
+        );
+    }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link MoveDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class MoveDirectiveTest {
+
+    /**
+     * MoveDirective can move nodes to another parent.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void movesNodesToAnotherParent() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives(
+                    StringUtils.join(
+                        "ADD 'r'; ADD 'orders'; ADD 'o'; ATTR 'id', '1'; UP;",
+                        "ADD 'o'; ATTR 'id', '2'; ADD 'item'; UP; UP; UP;",
+                        "ADD 'archive'; XPATH '/r/orders/o[@id=2]';",
+                        "MOVE '../../archive'; ATTR 'moved', 'yes';"
+                    )
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/r/orders[count(o) = 1 and o/@id=1]",
+                "/r/archive/o[@id=2 and @moved='yes' and item]"
+            )
+        );
+    }
+
+    /**
+     * MoveDirective can reject ambiguous target.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void rejectsAmbiguousTarget() throws Exception {
+        new Xembler(
+            new Directives().add("a").add("b").up().add("b").up().add("c")
+                .move("/a/b")
+        ).xml();
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import java.util.HashMap;
+import java.util.Map;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Prepared}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class PreparedTest {
+
+    /**
+     * Prepared can bind parameters to values.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void bindsParametersToValues() throws Exception {
+        final Prepared script = new Prepared(
+            "ADD 'users'; ADD $tag; ATTR 'id', $id; SET $name;"
+        );
+        final Map<String, Object> values = new HashMap<String, Object>(0);
+        values.put("tag", "user");
+        values.put("id", 1);
+        values.put("name", "Jeff & <Co>");
+        MatcherAssert.assertThat(
+            new Xembler(script.bind(values)).xml(),
+            XhtmlMatchers.hasXPath("/users/user[@id=1 and .='Jeff & <Co>']")
+        );
+        values.put("id", 2);
+        MatcherAssert.assertThat(
+            new Xembler(script.bind(values)).xml(),
+            XhtmlMatchers.hasXPath("/users/user[@id=2]")
+        );
+    }
+
+    /**
+     * Prepared can print itself as a script.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void printsItselfAsScript() throws Exception {
+        MatcherAssert.assertThat(
+            new Prepared("ADD 'x'; ATTR $name, 'a';"),
+            Matchers.hasToString("ADD \"x\";ATTR $name, \"a\";")
+        );
+    }
+
+    /**
+     * Prepared can reject directives with parameters not bound.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void rejectsParametersNotBound() throws Exception {
+        new Xembler(
+            new Prepared("ADD 'x'; SET $text;").bind(
+                new HashMap<String, Object>(0)
+            )
+        ).xml();
+    }
+
+    /**
+     * Prepared can reject invalid values.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidValues() throws Exception {
+        final Map<String, Object> values = new HashMap<String, Object>(0);
+        values.put("text", "\u0000");
+        new Prepared("ADD 'x'; SET $text;").bind(values);
+    }
+
+}
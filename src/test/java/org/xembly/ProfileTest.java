@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Test case for {@link Profile}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class ProfileTest {
+
+    /**
+     * Profile can render every directive of the script.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void rendersAnnotatedScript() throws Exception {
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        final String text = new Xembler(
+            new Directives("ADD 'root'; ADD 'item'; UP; XPATH 'item';")
+        ).profile(dom).toString();
+        MatcherAssert.assertThat(
+            text,
+            Matchers.allOf(
+                Matchers.containsString("0: ADD \"root\";"),
+                Matchers.containsString("1: ADD \"item\";"),
+                Matchers.containsString("2: UP;"),
+                Matchers.containsString("3: XPATH \"item\";")
+            )
+        );
+    }
+
+    /**
+     * Profile can accumulate numbers of many applications.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void accumulatesExecutions() throws Exception {
+        final Profile profile = new Profile(new Directives().add("x"));
+        profile.apply(
+            DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument()
+        );
+        profile.apply(
+            DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument()
+        );
+        MatcherAssert.assertThat(
+            profile.toString(),
+            Matchers.containsString("         2 ")
+        );
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ScriptCache}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class ScriptCacheTest {
+
+    /**
+     * ScriptCache can return the same directives for the same script.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void returnsSameDirectives() throws Exception {
+        final ScriptCache cache = new ScriptCache(Tv.TEN, Tv.THOUSAND);
+        final String script = "ADD 'root'; SET 'hello';";
+        MatcherAssert.assertThat(
+            cache.get(script),
+            Matchers.sameInstance(cache.get(script))
+        );
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(1L));
+    }
+
+    /**
+     * ScriptCache can evict the least recently used scripts.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        final ScriptCache cache = new ScriptCache(2, Tv.THOUSAND);
+        final String first = "ADD 'first';";
+        cache.get(first);
+        for (int idx = 0; idx < Tv.FIVE; ++idx) {
+            Thread.sleep(1L);
+            cache.get(String.format("ADD 'x%d';", idx));
+            cache.get(first);
+        }
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            cache.hits(), Matchers.equalTo((long) Tv.FIVE)
+        );
+    }
+
+    /**
+     * ScriptCache can evict scripts when they are too long in total.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void evictsByWeight() throws Exception {
+        final ScriptCache cache = new ScriptCache(Tv.HUNDRED, Tv.TWENTY);
+        cache.get("ADD 'alpha';");
+        cache.get("ADD 'beta';");
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Directives can be taken from the shared cache.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void makesDirectivesFromSharedCache() throws Exception {
+        final String script = "ADD 'cached'; ATTR 'a', 'b';";
+        MatcherAssert.assertThat(
+            Directives.cached(script),
+            Matchers.equalTo(new Directives(script))
+        );
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link SortDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class SortDirectiveTest {
+
+    /**
+     * SortDirective can sort children by numbers.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sortsChildrenByNumbers() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives()
+                    .add("c")
+                    .add("i").attr("p", "10").up()
+                    .add("i").attr("p", "none").up()
+                    .add("i").attr("p", "9").up()
+                    .add("i").attr("p", "100").up()
+                    .sort("@p", true)
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/c/i[1][@p=9]",
+                "/c/i[2][@p=10]",
+                "/c/i[3][@p=100]",
+                "/c/i[4][@p='none']"
+            )
+        );
+    }
+
+    /**
+     * SortDirective can sort children by texts.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void sortsChildrenByTexts() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives(
+                    // @checkstyle StringLiteralsConcatenation (3 lines)
+                    "ADD 'c'; ADD 'i'; SET 'beta'; UP; ADD 'i'; SET 'gamma';"
+                    + "UP; ADD 'i'; SET 'alpha'; UP; ADD 'i'; SET 'beta';"
+                    + "UP; SORT '.', 'text';"
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/c/i[1][.='alpha']",
+                "/c/i[3][.='beta']",
+                "/c/i[4][.='gamma']"
+            )
+        );
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Spool}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class SpoolTest {
+
+    /**
+     * Spool can keep directives in memory and in a file.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void spillsDirectivesToFile() throws Exception {
+        final Spool spool = new Spool(Tv.THOUSAND);
+        try {
+            spool.append(new Directives().add("rows"));
+            for (int idx = 0; idx < Tv.TEN * Tv.THOUSAND; ++idx) {
+                spool.append(
+                    new Directives().add("row").attr("id", idx).up()
+                );
+            }
+            MatcherAssert.assertThat(
+                spool.size(),
+                Matchers.equalTo(Tv.THREE * Tv.TEN * Tv.THOUSAND + 1L)
+            );
+            MatcherAssert.assertThat(
+                XhtmlMatchers.xhtml(new Xembler(spool).dom()),
+                XhtmlMatchers.hasXPaths(
+                    "/rows[count(row)=10000]",
+                    "/rows/row[@id='0']",
+                    "/rows/row[@id='9999']"
+                )
+            );
+        } finally {
+            spool.close();
+        }
+    }
+
+    /**
+     * Spool can be iterated many times.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void iteratesManyTimes() throws Exception {
+        final Spool spool = new Spool();
+        try {
+            spool.append(new Directives().add("a").set("b"));
+            MatcherAssert.assertThat(
+                new Directives(spool).toString(),
+                Matchers.equalTo(new Directives(spool).toString())
+            );
+        } finally {
+            spool.close();
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Statistics}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class StatisticsTest {
+
+    /**
+     * Statistics can count directives by type.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void countsDirectivesByType() throws Exception {
+        final StatisticsMXBean stats = Statistics.register();
+        try {
+            stats.reset();
+            new Xembler(
+                new Directives().add("root").add("a").up().add("b")
+            ).dom();
+            MatcherAssert.assertThat(
+                stats.getDirectivesByType(),
+                Matchers.allOf(
+                    Matchers.hasEntry("ADD", 2L + 1L),
+                    Matchers.hasEntry("UP", 1L)
+                )
+            );
+            MatcherAssert.assertThat(stats.getApplies(), Matchers.equalTo(1L));
+        } finally {
+            Statistics.unregister();
+        }
+    }
+
+    /**
+     * Statistics can count failures.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void countsFailures() throws Exception {
+        final StatisticsMXBean stats = Statistics.register();
+        try {
+            stats.reset();
+            try {
+                new Xembler(new Directives().strict(2)).dom();
+            } catch (final ImpossibleModificationException ex) {
+                MatcherAssert.assertThat(ex, Matchers.notNullValue());
+            }
+            MatcherAssert.assertThat(stats.getFailures(), Matchers.equalTo(1L));
+        } finally {
+            Statistics.unregister();
+        }
+    }
+
+    /**
+     * Statistics can be seen in JMX.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void registersInJmx() throws Exception {
+        Statistics.register();
+        try {
+            MatcherAssert.assertThat(
+                ManagementFactory.getPlatformMBeanServer().isRegistered(
+                    new ObjectName(Statistics.NAME)
+                ),
+                Matchers.is(true)
+            );
+        } finally {
+            Statistics.unregister();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.io.StringReader;
+import java.util.concurrent.Callable;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+/**
+ * Test case for {@link StreamDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class StreamDirectiveTest {
+
+    /**
+     * StreamDirective can set text from a reader, chunk by chunk.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void setsTextFromReader() throws Exception {
+        final String text = StringUtils.repeat("abcdefghij", Tv.THOUSAND);
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives().add("doc").set(new StringReader(text))
+            ).xml(),
+            XhtmlMatchers.hasXPath(
+                String.format("/doc[.='%s']", text)
+            )
+        );
+    }
+
+    /**
+     * StreamDirective can add CDATA from a callable.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void addsCdataFromCallable() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives().add("doc").cdata(
+                    new Callable<CharSequence>() {
+                        @Override
+                        public CharSequence call() {
+                            return new StringBuilder("a < b");
+                        }
+                    }
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPath("/doc[.='a < b']")
+        );
+    }
+
+    /**
+     * StreamDirective can reject illegal characters.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void rejectsIllegalCharacters() throws Exception {
+        new Xembler(
+            new Directives().add("doc").set(new StringReader("\u0008"))
+        ).xml();
+    }
+
+    /**
+     * StreamDirective can refuse to consume a reader twice.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = ImpossibleModificationException.class)
+    public void refusesToReadTwice() throws Exception {
+        final Xembler xembler = new Xembler(
+            new Directives().add("doc").set(new StringReader("once"))
+        );
+        xembler.xml();
+        xembler.xml();
+    }
+
+    /**
+     * StreamDirective can write every chunk as a separate text node.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void writesEveryChunkAsTextNode() throws Exception {
+        final String text = StringUtils.repeat("abcdefghij", Tv.THOUSAND);
+        final Node doc = new Xembler(
+            new Directives().add("doc").set("old")
+                .set(new StringReader(text))
+        ).dom().getDocumentElement();
+        MatcherAssert.assertThat(
+            doc.getChildNodes().getLength(),
+            Matchers.equalTo(2)
+        );
+        MatcherAssert.assertThat(doc.getTextContent(), Matchers.equalTo(text));
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Parallel;
+import com.jcabi.aspects.Tv;
+import com.jcabi.matchers.XhtmlMatchers;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Test case for {@link Template}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class TemplateTest {
+
+    /**
+     * Template can apply directives to independent copies.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appliesDirectivesToCopies() throws Exception {
+        final Template template = new Template(
+            new Directives().add("page").add("head").up()
+        );
+        final Document first = template.apply(
+            new Directives().xpath("/page").add("first")
+        );
+        final Document second = template.apply(
+            new Directives().xpath("/page").add("second")
+        );
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(first),
+            XhtmlMatchers.hasXPaths("/page[head and first and not(second)]")
+        );
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(second),
+            XhtmlMatchers.hasXPaths("/page[head and second and not(first)]")
+        );
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(template.dom()),
+            XhtmlMatchers.hasXPaths("/page[count(*) = 1]")
+        );
+    }
+
+    /**
+     * Template can apply the skeleton only once.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appliesSkeletonOnce() throws Exception {
+        final Directives skeleton = new Directives().add("root");
+        final Template template = new Template(skeleton);
+        template.dom();
+        skeleton.add("late");
+        MatcherAssert.assertThat(
+            template.dom().getDocumentElement().hasChildNodes(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Template can make copies in many threads.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void makesCopiesInManyThreads() throws Exception {
+        final Template template = new Template(
+            new Directives().add("list").add("head").up()
+        );
+        final AtomicInteger total = new AtomicInteger();
+        new Callable<Void>() {
+            @Parallel(threads = Tv.FIFTY)
+            @Override
+            public Void call() throws Exception {
+                MatcherAssert.assertThat(
+                    XhtmlMatchers.xhtml(
+                        template.apply(
+                            new Directives().xpath("/list").add("item")
+                        )
+                    ),
+                    XhtmlMatchers.hasXPath("/list[head and count(item)=1]")
+                );
+                total.incrementAndGet();
+                return null;
+            }
+        } .call();
+        MatcherAssert.assertThat(total.get(), Matchers.equalTo(Tv.FIFTY));
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.aspects.Tv;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Traces}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class TracesTest {
+
+    /**
+     * Traces can notify attached trace about parsing and execution.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void notifiesAttachedTrace() throws Exception {
+        final TracesTest.Counting trace = new TracesTest.Counting();
+        Traces.attach(trace);
+        try {
+            new Xembler(
+                new Directives("ADD 'root'; ADD 'a'; SET 'hey'; UP;")
+            ).xml();
+        } finally {
+            Traces.detach(trace);
+        }
+        MatcherAssert.assertThat(
+            trace.parsed.get(), Matchers.equalTo(1)
+        );
+        MatcherAssert.assertThat(
+            trace.executed.get(), Matchers.equalTo(Tv.FOUR)
+        );
+        MatcherAssert.assertThat(
+            trace.applied.get(), Matchers.equalTo(1)
+        );
+        MatcherAssert.assertThat(
+            trace.serialized.get(), Matchers.greaterThan(0)
+        );
+    }
+
+    /**
+     * Traces can stop notifying detached trace.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void ignoresDetachedTrace() throws Exception {
+        final TracesTest.Counting trace = new TracesTest.Counting();
+        Traces.attach(trace);
+        Traces.detach(trace);
+        new Xembler(new Directives().add("x").up()).dom();
+        MatcherAssert.assertThat(
+            trace.executed.get(), Matchers.equalTo(0)
+        );
+    }
+
+    /**
+     * Trace that counts events.
+     */
+    private static final class Counting implements Trace {
+        /**
+         * Parsed scripts.
+         */
+        private final transient AtomicInteger parsed = new AtomicInteger();
+        /**
+         * Executed directives.
+         */
+        private final transient AtomicInteger executed = new AtomicInteger();
+        /**
+         * Applications.
+         */
+        private final transient AtomicInteger applied = new AtomicInteger();
+        /**
+         * Total characters serialized.
+         */
+        private final transient AtomicInteger serialized =
+            new AtomicInteger();
+        @Override
+        public void parsed(final int length, final int directives,
+            final long nanos) {
+            this.parsed.incrementAndGet();
+        }
+        @Override
+        public void executed(final Directive dir, final int cursor,
+            final long nanos) {
+            this.executed.incrementAndGet();
+        }
+        @Override
+        public void failed(final Directive dir,
+            final ImpossibleModificationException cause) {
+            throw new UnsupportedOperationException(cause);
+        }
+        @Override
+        public void applied(final int directives, final int nodes,
+            final long nanos) {
+            this.applied.incrementAndGet();
+        }
+        @Override
+        public void serialized(final int length, final long nanos) {
+            this.serialized.addAndGet(length);
+        }
+    }
+
+}
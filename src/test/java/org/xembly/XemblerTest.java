@@ -158,6 +158,35 @@ public final class XemblerTest {
         );
     }
 
+    /**
+     * Xembler can return clean text as is.
+     * @throws Exception If some problem inside
+     * @since 0.23
+     */
+    @Test
+    public void returnsCleanTextAsIs() throws Exception {
+        final String text = "nothing to escape here \u20ac";
+        MatcherAssert.assertThat(
+            Xembler.escape(text),
+            Matchers.sameInstance(text)
+        );
+    }
+
+    /**
+     * Xembler can escape broken text into an appendable.
+     * @throws Exception If some problem inside
+     * @since 0.23
+     */
+    @Test
+    public void escapesBrokenTextIntoAppendable() throws Exception {
+        final StringBuilder output = new StringBuilder(0);
+        Xembler.escape(new StringBuilder("a\u0001b\u009fc"), output);
+        MatcherAssert.assertThat(
+            output.toString(),
+            Matchers.equalTo("a\\u0001b\\u009fc")
+        );
+    }
+
     /**
      * Xembler can modify a cloned node.
      * @throws Exception If some problem inside
@@ -222,6 +251,56 @@ public final class XemblerTest {
         );
     }
 
+    /**
+     * Xembler can build the same subtree under many nodes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void buildsSameSubtreeUnderManyNodes() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Directives(
+                    StringUtils.join(
+                        "ADD 't'; ADD 'r'; UP; ADD 'r'; UP; ADD 'r'; UP;",
+                        "XPATH '/t/r'; ADD 'td'; ATTR 'id', '5';",
+                        "ADD 'b'; SET 'x'; UP; UP; ADD 'td'; CDATA 'y';",
+                        "UP; ADD 'last';"
+                    )
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPaths(
+                "/t[count(r) = 3]",
+                "/t[count(r/td[@id='5' and b='x']) = 3]",
+                "/t[count(r/td[.='y']) = 3]",
+                "/t[count(r/last) = 3]"
+            )
+        );
+    }
+
+    /**
+     * Xembler can report position of a broken directive after a block.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void reportsBrokenDirectiveAfterBlock() throws Exception {
+        try {
+            new Xembler(
+                new Directives(
+                    StringUtils.join(
+                        "ADD 'a'; ADD 'b'; UP; ADD 'b'; XPATH '/a/b';",
+                        "ADD 'c'; UP; UP; UP; UP;"
+                    )
+                )
+            ).xml();
+            MatcherAssert.assertThat("exception expected", false);
+        } catch (final ImpossibleModificationException ex) {
+            MatcherAssert.assertThat(
+                ex.getMessage(),
+                Matchers.startsWith("directive #10:")
+            );
+        }
+    }
+
     /**
      * Test that concurrent invocations on shared DOM.
      * doesn't ruin executing thread
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2013-2017, xembly.org
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the xembly.org nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.xembly;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Test case for {@link XmlDirective}.
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @version $Id$
+ * @since 0.23
+ */
+public final class XmlDirectiveTest {
+
+    /**
+     * XmlDirective can append fragment to all current nodes.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void appendsFragmentToCurrentNodes() throws Exception {
+        final Iterable<Directive> dirs = new Directives(
+            // @checkstyle StringLiteralsConcatenation (3 lines)
+            "ADD 'books'; ADD 'shelf'; UP; ADD 'shelf'; XPATH '//shelf';"
+            + "XML '<book id=\"1\"><title>Dune</title></book><?pi d?><x/>';"
+            + "ADD 'last';"
+        );
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        new Xembler(dirs).apply(dom);
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(dom),
+            XhtmlMatchers.hasXPaths(
+                "/books[count(shelf/book[@id=1 and title='Dune']) = 2]",
+                "/books/shelf/processing-instruction('pi')",
+                "/books/shelf[x and last]"
+            )
+        );
+    }
+
+    /**
+     * XmlDirective can be encoded and decoded.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void survivesEncoding() throws Exception {
+        MatcherAssert.assertThat(
+            new Xembler(
+                new Bytecode(
+                    Bytecode.encode(new Directives().xml("<a><b>x</b></a>"))
+                )
+            ).xml(),
+            XhtmlMatchers.hasXPath("/a[b='x']")
+        );
+    }
+
+    /**
+     * XmlDirective can reject broken fragment.
+     * @throws Exception If some problem inside
+     */
+    @Test(expected = SyntaxException.class)
+    public void rejectsBrokenFragment() throws Exception {
+        new Directives("XML '<a><b></a>';");
+    }
+
+    /**
+     * XmlDirective can keep namespaces of the fragment.
+     * @throws Exception If some problem inside
+     */
+    @Test
+    public void keepsNamespaces() throws Exception {
+        final Node item = new Xembler(
+            new Directives().add("root")
+                .xml("<x:item xmlns:x='urn:test'><x:id>1</x:id></x:item>")
+        ).dom().getDocumentElement().getFirstChild();
+        MatcherAssert.assertThat(
+            item.getNamespaceURI(),
+            Matchers.equalTo("urn:test")
+        );
+        MatcherAssert.assertThat(item.getLocalName(), Matchers.equalTo("item"));
+        MatcherAssert.assertThat(
+            XhtmlMatchers.xhtml(item.getOwnerDocument()),
+            XhtmlMatchers.hasXPath("/root/ns1:item[ns1:id='1']", "urn:test")
+        );
+    }
+
+}